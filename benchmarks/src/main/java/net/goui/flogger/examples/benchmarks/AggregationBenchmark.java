@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static com.google.common.flogger.context.ScopeType.REQUEST;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.context.ScopedLoggingContext;
+import com.google.common.flogger.context.ScopedLoggingContext.LoggingContextCloseable;
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of aggregated rate limiting with {@code per(...)}, as used in {@code
+ * AdvancedExamples.logAggregationExample()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AggregationBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private enum Mood {
+    HAPPY,
+    SAD,
+    BORED,
+    EXCITED
+  }
+
+  private static final Mood[] MOODS = Mood.values();
+
+  private int count = 0;
+  private LoggingContextCloseable requestContext;
+
+  @Setup(Level.Iteration)
+  public void installRequestContext() {
+    requestContext = ScopedLoggingContext.getInstance().newContext(REQUEST).install();
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeRequestContext() {
+    requestContext.close();
+  }
+
+  @Benchmark
+  public void everyPerEnum() {
+    Mood mood = MOODS[count++ & 3];
+    logger.atInfo().every(50).per(mood).log("I'm feeling: %s", mood);
+  }
+
+  @Benchmark
+  public void everyPerRequestScope() {
+    logger.atInfo().every(50).per(REQUEST).log("Task: %s", "Foo");
+  }
+}
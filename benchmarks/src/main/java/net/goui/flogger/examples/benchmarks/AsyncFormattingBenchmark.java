@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.net.URISyntaxException;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.AsyncFormattingBackendFactory;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The latency distribution of an enabled log statement when formatting and output happen on a
+ * background thread (via {@link AsyncFormattingBackendFactory}), with the same synchronous file
+ * logging as the "sync" case of {@link AsyncLoggingLatencyBenchmark} (to which it should be
+ * compared).
+ *
+ * <p>As with async Log4J loggers, a single thread logging in a tight loop will eventually fill the
+ * queue, so the tail of the distribution shows the "block" full-queue policy. The queue state is
+ * printed at the end of each trial.
+ *
+ * <pre>{@code
+ * java -jar target/benchmarks.jar AsyncFormatting -rf csv
+ * }</pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(
+    value = 1,
+    jvmArgs = {
+      "-Dflogger.backend_factory="
+          + "net.goui.flogger.examples.AsyncFormattingBackendFactory#getInstance",
+      "-Dlog4j.shutdownHookEnabled=false"
+    })
+@State(Scope.Thread)
+public class AsyncFormattingBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private long n = 16;
+  private long value = 987;
+
+  @Setup(Level.Trial)
+  public void reconfigure() throws URISyntaxException {
+    Configurator.reconfigure(
+        getClass().getClassLoader().getResource("log4j2-latency-sync.xml").toURI());
+  }
+
+  @TearDown(Level.Trial)
+  public void report() {
+    System.out.println(
+        "async formatting: " + AsyncFormattingBackendFactory.getInstance().metrics());
+  }
+
+  @Benchmark
+  public void logInfo() {
+    logger.atInfo().log("Fibonacci: fib(%d) = %d", n, value);
+  }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.net.URISyntaxException;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.AsyncLoggingMetrics;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The latency distribution (including p99) of an enabled log statement as seen by the logging
+ * thread, with output written to a file either synchronously or via an async (Disruptor) root
+ * logger.
+ *
+ * <p>Note that a single thread logging in a tight loop will eventually fill the async queue, at
+ * which point the async case measures the "block" full-queue policy (the tail of the distribution
+ * shows this). The queue state is printed at the end of each trial.
+ *
+ * <pre>{@code
+ * java -jar target/benchmarks.jar AsyncLoggingLatency -rf csv
+ * }</pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AsyncLoggingLatencyBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @Param({"log4j2-latency-sync.xml", "log4j2-latency-async.xml"})
+  public String config;
+
+  private long n = 16;
+  private long value = 987;
+
+  @Setup(Level.Trial)
+  public void reconfigure() throws URISyntaxException {
+    Configurator.reconfigure(getClass().getClassLoader().getResource(config).toURI());
+  }
+
+  @TearDown(Level.Trial)
+  public void report() {
+    System.out.println(config + ": " + AsyncLoggingMetrics.snapshot());
+  }
+
+  @Benchmark
+  public void logInfo() {
+    logger.atInfo().log("Fibonacci: fib(%d) = %d", n, value);
+  }
+}
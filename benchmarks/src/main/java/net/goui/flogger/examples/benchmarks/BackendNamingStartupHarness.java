@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.flogger.backend.system.BackendFactory;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.apache.logging.log4j.core.LoggerContext;
+
+/**
+ * Startup cost of the Flogger Next backend naming strategies, for thousands of classes which each
+ * have a {@code FluentLogger}.
+ *
+ * <p>This is not a JMH benchmark, since startup only happens once per JVM. Instead it generates
+ * and compiles synthetic logging classes, and then for each backend and naming strategy it runs a
+ * new JVM with a generated logging configuration, which loads every class and reports:
+ *
+ * <ul>
+ *   <li>The time until the first log statement has been emitted (including Flogger's own setup).
+ *   <li>The total time to load and initialize the remaining classes.
+ *   <li>The time for the first (disabled) log statement in each class, when backends are resolved.
+ *   <li>The heap retained once every class has logged.
+ *   <li>The number of underlying loggers created for the generated classes (one per backend).
+ * </ul>
+ *
+ * <p>Generated classes are spread evenly over {@value #MODULES} "modules" of {@value
+ * #PACKAGES_PER_MODULE} packages each (e.g. {@code startup.gen.m3.p7.Logging42}). Each result is
+ * the median over several JVM runs. Both backends must be on the classpath for both to be measured,
+ * so build the benchmarks jar with the {@code jdk-backend} profile:
+ *
+ * <pre>{@code
+ * mvn package -Pjdk-backend
+ * java --enable-preview -cp target/benchmarks.jar \
+ *     net.goui.flogger.examples.benchmarks.BackendNamingStartupHarness [classes] [runs]
+ * }</pre>
+ */
+public final class BackendNamingStartupHarness {
+  private static final String GENERATED_PACKAGE = "startup.gen";
+  private static final int MODULES = 10;
+  private static final int PACKAGES_PER_MODULE = 10;
+  private static final int DEFAULT_CLASS_COUNT = 10_000;
+  private static final int DEFAULT_RUNS = 3;
+  // Passed as the first argument to run the measurements in a child JVM.
+  private static final String CHILD_ARG = "--child";
+  // Marks the line of child output with the results.
+  private static final String RESULT_PREFIX = "result:";
+  // The number of values in each result (see measureStartup()).
+  private static final int RESULT_COUNT = 5;
+
+  /** The Flogger Next backends, identified by the package of their backend factory. */
+  private enum Backend {
+    JDK(".system."),
+    LOG4J(".log4j.");
+
+    private final String packageSegment;
+
+    Backend(String packageSegment) {
+      this.packageSegment = packageSegment;
+    }
+  }
+
+  /** The naming strategies described in the Flogger Next backend naming documentation. */
+  private enum Strategy {
+    NONE,
+    PER_PACKAGE,
+    MAX_DEPTH,
+    EXPLICIT_ROOTS,
+    SYSTEM_ROOTS;
+
+    /** Returns the naming options for this strategy (without the "flogger.backend_naming."). */
+    Map<String, String> options() {
+      Map<String, String> options = new LinkedHashMap<>();
+      switch (this) {
+        case NONE -> {}
+        case PER_PACKAGE -> options.put("trim_at_least", "1");
+        case MAX_DEPTH -> {
+          // Trims "startup.gen.mN.pN.LoggingN" to "startup.gen.mN".
+          options.put("trim_at_least", "1");
+          options.put("retain_at_most", "3");
+        }
+        case EXPLICIT_ROOTS -> {
+          List<String> roots = moduleNames();
+          options.put("roots.size", Integer.toString(roots.size()));
+          for (int n = 0; n < roots.size(); n++) {
+            options.put("roots." + n, roots.get(n));
+          }
+        }
+        case SYSTEM_ROOTS -> options.put("use_system_roots", "true");
+      }
+      return options;
+    }
+
+    /** Returns the loggers which are configured in the underlying logging system. */
+    List<String> configuredLoggers() {
+      return this == SYSTEM_ROOTS ? moduleNames() : List.of();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals(CHILD_ARG)) {
+      measureStartup(Backend.valueOf(args[1]), Integer.parseInt(args[2]));
+      return;
+    }
+    int classCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLASS_COUNT;
+    int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+
+    Path workDir = Files.createTempDirectory("flogger-startup");
+    System.out.printf("Generating %d classes in: %s%n", classCount, workDir);
+    Path classDir = generateClasses(workDir, classCount);
+    Map<Backend, String> factories = findBackendFactories();
+    List<String> rows = new ArrayList<>();
+    for (Backend backend : Backend.values()) {
+      String factory = factories.get(backend);
+      if (factory == null) {
+        System.out.printf("No %s backend on the classpath (skipped).%n", backend);
+        continue;
+      }
+      for (Strategy strategy : Strategy.values()) {
+        List<long[]> results = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+          Path config = writeConfig(workDir, backend, strategy);
+          results.add(runChild(backend, factory, strategy, config, classDir, classCount));
+        }
+        long[] median = median(results);
+        rows.add(
+            String.format(
+                "%-7s %-15s %8d %12.1f %13.1f %12.1f %8d",
+                backend,
+                strategy,
+                median[0],
+                median[1] / 1e6,
+                median[2] / 1e6,
+                median[3] / 1e6,
+                median[4] / 1024));
+      }
+    }
+    System.out.printf(
+        "%n%-7s %-15s %8s %12s %13s %12s %8s%n",
+        "Backend",
+        "Strategy",
+        "Backends",
+        "First log ms",
+        "Class init ms",
+        "First use ms",
+        "Heap KB");
+    rows.forEach(System.out::println);
+  }
+
+  private static List<String> moduleNames() {
+    return IntStream.range(0, MODULES).mapToObj(m -> GENERATED_PACKAGE + ".m" + m).toList();
+  }
+
+  private static List<String> classNames(int classCount) {
+    int packages = MODULES * PACKAGES_PER_MODULE;
+    return IntStream.range(0, classCount)
+        .mapToObj(
+            n -> {
+              int pkg = n % packages;
+              return String.format(
+                  "%s.m%d.p%d.Logging%d",
+                  GENERATED_PACKAGE, pkg / PACKAGES_PER_MODULE, pkg % PACKAGES_PER_MODULE, n);
+            })
+        .toList();
+  }
+
+  private static Path generateClasses(Path workDir, int classCount) throws IOException {
+    Path srcDir = workDir.resolve("src");
+    Path classDir = workDir.resolve("classes");
+    Files.createDirectories(classDir);
+    List<String> sources = new ArrayList<>();
+    for (String name : classNames(classCount)) {
+      int dot = name.lastIndexOf('.');
+      Path file = srcDir.resolve(name.replace('.', '/') + ".java");
+      Files.createDirectories(file.getParent());
+      Files.writeString(
+          file,
+          String.format(
+              """
+              package %s;
+
+              import java.util.function.Consumer;
+              import java.util.logging.Level;
+              import net.goui.flogger.FluentLogger;
+
+              public final class %s implements Consumer<Level> {
+                private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+                @Override
+                public void accept(Level level) {
+                  logger.at(level).log("Logging at startup");
+                }
+              }
+              """,
+              name.substring(0, dot),
+              name.substring(dot + 1)));
+      sources.add(file.toString());
+    }
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    if (javac == null) {
+      throw new IllegalStateException("generating classes requires a JDK (not a JRE)");
+    }
+    List<String> javacArgs =
+        new ArrayList<>(
+            List.of(
+                // Flogger Next is compiled with preview features (for String Templates).
+                "--release",
+                Integer.toString(Runtime.version().feature()),
+                "--enable-preview",
+                "-nowarn",
+                "-cp",
+                System.getProperty("java.class.path"),
+                "-d",
+                classDir.toString()));
+    javacArgs.addAll(sources);
+    if (javac.run(null, null, null, javacArgs.toArray(String[]::new)) != 0) {
+      throw new IllegalStateException("failed to compile generated classes");
+    }
+    return classDir;
+  }
+
+  private static Map<Backend, String> findBackendFactories() {
+    // Both backends may be installed, so each child JVM must be told which one to use.
+    Map<Backend, String> factories = new EnumMap<>(Backend.class);
+    ServiceLoader.load(BackendFactory.class).stream()
+        .map(p -> p.type().getName())
+        .filter(name -> name.startsWith("net.goui.flogger."))
+        .forEach(
+            name -> {
+              for (Backend backend : Backend.values()) {
+                if (name.contains(backend.packageSegment)) {
+                  factories.put(backend, name);
+                }
+              }
+            });
+    return factories;
+  }
+
+  private static Path writeConfig(Path workDir, Backend backend, Strategy strategy)
+      throws IOException {
+    Map<String, String> options = new LinkedHashMap<>();
+    strategy.options().forEach((k, v) -> options.put("flogger.backend_naming." + k, v));
+    String config =
+        switch (backend) {
+          case JDK -> jdkConfig(options, strategy.configuredLoggers());
+          case LOG4J -> log4jConfig(options, strategy.configuredLoggers());
+        };
+    String suffix = backend == Backend.JDK ? ".properties" : ".xml";
+    return Files.writeString(workDir.resolve(strategy + suffix), config);
+  }
+
+  private static String jdkConfig(Map<String, String> options, List<String> loggers) {
+    // No handlers, so all output is discarded (INFO is enabled and FINE is disabled).
+    StringBuilder config = new StringBuilder("handlers=\n.level=INFO\n");
+    options.forEach((k, v) -> config.append(k).append('=').append(v).append('\n'));
+    loggers.forEach(name -> config.append(name).append(".level=INFO\n"));
+    return config.toString();
+  }
+
+  private static String log4jConfig(Map<String, String> options, List<String> loggers) {
+    // No appenders, so all output is discarded (INFO is enabled and FINE/DEBUG is disabled).
+    StringBuilder config = new StringBuilder("<Configuration status=\"warn\">\n  <Properties>\n");
+    options.forEach(
+        (k, v) -> config.append(String.format("    <Property name=\"%s\">%s</Property>%n", k, v)));
+    config.append("  </Properties>\n  <Loggers>\n    <Root level=\"info\"/>\n");
+    loggers.forEach(
+        name -> config.append(String.format("    <Logger name=\"%s\" level=\"info\"/>%n", name)));
+    return config.append("  </Loggers>\n</Configuration>\n").toString();
+  }
+
+  private static long[] runChild(
+      Backend backend,
+      String factory,
+      Strategy strategy,
+      Path config,
+      Path classDir,
+      int classCount)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("--enable-preview");
+    command.add("-Dflogger.backend_factory=" + factory);
+    switch (backend) {
+      case JDK -> {
+        command.add("-Djava.util.logging.config.file=" + config);
+        if (strategy == Strategy.SYSTEM_ROOTS) {
+          // Required for the JDK backend to import system roots.
+          command.add(
+              "-Djava.util.logging.config.class=net.goui.flogger.backend.system.FloggerConfig");
+        }
+      }
+      case LOG4J -> command.add("-Dlog4j2.configurationFile=" + config);
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path") + File.pathSeparator + classDir);
+    command.add(BackendNamingStartupHarness.class.getName());
+    command.add(CHILD_ARG);
+    command.add(backend.name());
+    command.add(Integer.toString(classCount));
+
+    Process process = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+    long[] result = null;
+    try (BufferedReader out =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8))) {
+      for (String line = out.readLine(); line != null; line = out.readLine()) {
+        if (line.startsWith(RESULT_PREFIX)) {
+          result =
+              Arrays.stream(line.substring(RESULT_PREFIX.length()).split(" "))
+                  .mapToLong(Long::parseLong)
+                  .toArray();
+        }
+      }
+    }
+    if (process.waitFor() != 0 || result == null) {
+      throw new IllegalStateException("startup measurement failed: " + backend + "/" + strategy);
+    }
+    return result;
+  }
+
+  private static long[] median(List<long[]> results) {
+    long[] median = new long[RESULT_COUNT];
+    for (int i = 0; i < median.length; i++) {
+      int column = i;
+      List<Long> values = results.stream().map(r -> r[column]).sorted().toList();
+      median[i] = values.get(values.size() / 2);
+    }
+    return median;
+  }
+
+  // Runs in the child JVM, and prints RESULT_COUNT values in the order of the table columns.
+  @SuppressWarnings("unchecked")
+  private static void measureStartup(Backend backend, int classCount)
+      throws ReflectiveOperationException {
+    long baselineHeap = usedHeapAfterGc();
+    List<String> names = classNames(classCount);
+    ClassLoader loader = ClassLoader.getSystemClassLoader();
+
+    long start = System.nanoTime();
+    Class<?> first = Class.forName(names.get(0), true, loader);
+    ((Consumer<Level>) first.getConstructor().newInstance()).accept(Level.INFO);
+    long firstLogNanos = System.nanoTime() - start;
+
+    List<Class<?>> classes = new ArrayList<>(List.of(first));
+    start = System.nanoTime();
+    for (String name : names.subList(1, names.size())) {
+      classes.add(Class.forName(name, true, loader));
+    }
+    long classInitNanos = System.nanoTime() - start;
+
+    List<Consumer<Level>> loggers = new ArrayList<>();
+    for (Class<?> clazz : classes) {
+      loggers.add((Consumer<Level>) clazz.getConstructor().newInstance());
+    }
+    // Flogger Next defers creating the underlying logger until the first log statement.
+    start = System.nanoTime();
+    for (Consumer<Level> logger : loggers) {
+      logger.accept(Level.FINE);
+    }
+    long firstUseNanos = System.nanoTime() - start;
+
+    long retainedHeap = usedHeapAfterGc() - baselineHeap;
+    long backends =
+        switch (backend) {
+          case JDK ->
+              Collections.list(LogManager.getLogManager().getLoggerNames()).stream()
+                  .filter(name -> name.startsWith(GENERATED_PACKAGE))
+                  .count();
+          case LOG4J ->
+              LoggerContext.getContext(false).getLoggers().stream()
+                  .filter(logger -> logger.getName().startsWith(GENERATED_PACKAGE))
+                  .count();
+        };
+    // Loggers are held by the static fields of the generated classes, which are never unloaded.
+    System.out.println(
+        LongStream.of(backends, firstLogNanos, classInitNanos, firstUseNanos, retainedHeap)
+            .mapToObj(Long::toString)
+            .collect(joining(" ", RESULT_PREFIX, "")));
+  }
+
+  private static long usedHeapAfterGc() {
+    System.gc();
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private BackendNamingStartupHarness() {}
+}
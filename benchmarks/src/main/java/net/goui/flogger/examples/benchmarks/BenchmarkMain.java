@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmarks jar. This accepts the normal JMH command line options, but always
+ * adds the GC profiler (so allocation rates are reported alongside timings) and sets up the forked
+ * JVMs to use String Templates and the benchmark Log4J configuration.
+ *
+ * <pre>{@code
+ * java -jar target/benchmarks.jar DisabledLogging
+ * }</pre>
+ */
+public final class BenchmarkMain {
+  /** The Log4J configuration (on the benchmark classpath) which discards all log output. */
+  static final String LOG4J_CONFIG = "-Dlog4j2.configurationFile=log4j2-benchmark.xml";
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    Options options =
+        new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("--enable-preview", LOG4J_CONFIG)
+            .build();
+    new Runner(options).run();
+  }
+
+  private BenchmarkMain() {}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.context.LogLevelMap;
+import com.google.common.flogger.context.ScopedLoggingContext.LoggingContextCloseable;
+import com.google.common.flogger.context.ScopedLoggingContexts;
+import com.google.common.flogger.context.Tags;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.GrpcPropagatingExecutorService;
+import net.goui.flogger.examples.VirtualThreadPropagatingExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-task overhead of propagating logging contexts into executor tasks. Each invocation submits
+ * {@link #TASK_COUNT} tasks, which each execute a (disabled) log statement, and waits for them all
+ * to complete. Results are reported per task.
+ *
+ * <p>Executors:
+ *
+ * <ul>
+ *   <li>{@code grpcFixedPool}: The existing {@link GrpcPropagatingExecutorService} over a fixed
+ *       thread pool (as in {@code MultiThreadedExample}).
+ *   <li>{@code grpcVirtual}: The existing wrapper over a virtual thread per task executor.
+ *   <li>{@code virtual}: {@link VirtualThreadPropagatingExecutorService}.
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextPropagationBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static final int TASK_COUNT = 100_000;
+
+  private static final MetadataKey<String> LABEL = MetadataKey.single("label", String.class);
+
+  @Param({"grpcFixedPool", "grpcVirtual", "virtual"})
+  public String executor;
+
+  /** Whether tasks are submitted from the root context or from a populated logging context. */
+  @Param({"false", "true"})
+  public boolean inContext;
+
+  private ExecutorService service;
+
+  @Setup
+  public void createExecutor() {
+    switch (executor) {
+      case "grpcFixedPool" ->
+          service =
+              GrpcPropagatingExecutorService.wrap(
+                  Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+      case "grpcVirtual" ->
+          service = GrpcPropagatingExecutorService.wrap(Executors.newVirtualThreadPerTaskExecutor());
+      case "virtual" -> service = VirtualThreadPropagatingExecutorService.create();
+      default -> throw new IllegalArgumentException("unknown executor: " + executor);
+    }
+  }
+
+  @TearDown
+  public void shutdownExecutor() {
+    service.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASK_COUNT)
+  public void submitTasks() throws Exception {
+    if (inContext) {
+      try (LoggingContextCloseable ctx =
+          ScopedLoggingContexts.newContext()
+              .withTags(Tags.of("task", "benchmark"))
+              .withMetadata(LABEL, "value")
+              .withLogLevelMap(LogLevelMap.create(Level.FINEST))
+              .install()) {
+        runAll();
+      }
+    } else {
+      runAll();
+    }
+  }
+
+  private void runAll() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(TASK_COUNT);
+    Runnable task =
+        () -> {
+          // Disabled by the Log4J configuration, but forced in the populated logging context.
+          logger.atFinest().every(TASK_COUNT).log("Task running");
+          done.countDown();
+        };
+    for (int n = 0; n < TASK_COUNT; n++) {
+      service.execute(task);
+    }
+    done.await();
+  }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of disabled log statements. This is the most important number for any logging API,
+ * since disabled statements are typically reached far more often than enabled ones.
+ *
+ * <p>The {@code fibonacci*} benchmarks mirror the naive recursion in {@code BasicExamples} to show
+ * what a disabled {@code atFine()} statement costs inside a hot loop, relative to the same loop with
+ * no logging at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisabledLoggingBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  // Non-final fields to prevent constant folding of arguments.
+  private long n = 16;
+  private long value = 987;
+
+  @Benchmark
+  public void disabledLiteral() {
+    logger.atFine().log("This log statement is disabled.");
+  }
+
+  @Benchmark
+  public void disabledWithArguments() {
+    logger.atFine().log("Fibonacci: fib(%d) = %d", n, value);
+  }
+
+  @Benchmark
+  public void disabledEvery() {
+    logger.atFine().every(1000).log("Fibonacci [Sampled]: fib(%d) = %d", n, value);
+  }
+
+  @Benchmark
+  public void disabledAtMostEvery() {
+    logger.atFine().atMostEvery(2, SECONDS).log("Fibonacci [Rate Limited]: fib(%d) = %d", n, value);
+  }
+
+  @Benchmark
+  public long fibonacciWithoutLogging() {
+    return fibonacci(n, false);
+  }
+
+  @Benchmark
+  public long fibonacciWithDisabledLogging() {
+    return fibonacci(n, true);
+  }
+
+  private static long fibonacci(long n, boolean withLogging) {
+    long value = (n <= 2) ? 1 : fibonacci(n - 1, withLogging) + fibonacci(n - 2, withLogging);
+    if (withLogging) {
+      logger.atFine().log("Fibonacci: fib(%d) = %d", n, value);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.MetadataKey;
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of enabled log statements, formatted by Flogger Next and passed to a Log4J appender which
+ * discards them. This measures everything up to (but not including) the final output I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnabledLoggingBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final MetadataKey<String> LABEL = MetadataKey.single("label", String.class);
+
+  private long n = 16;
+  private long value = 987;
+  private String label = "foo";
+
+  @Benchmark
+  public void enabledLiteral() {
+    logger.atInfo().log("Hello World");
+  }
+
+  @Benchmark
+  public void enabledWithArguments() {
+    logger.atInfo().log("Fibonacci: fib(%d) = %d", n, value);
+  }
+
+  @Benchmark
+  public void enabledWithMetadata() {
+    logger.atInfo().with(LABEL, label).log("Fibonacci: fib(%d) = %d", n, value);
+  }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.Collections.nCopies;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.context.ScopedLoggingContext.LoggingContextCloseable;
+import com.google.common.flogger.context.ScopedLoggingContexts;
+import com.google.common.flogger.context.Tags;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.GrpcPropagatingExecutorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput (tasks per second) of fanning out {@link #TASK_COUNT} tasks from a single request
+ * context via {@link GrpcPropagatingExecutorService}, submitting tasks one at a time (as in {@code
+ * MultiThreadedExample}) compared to {@link GrpcPropagatingExecutorService#submitAll}, which
+ * captures the context once for the whole batch. Each invocation waits for all tasks to complete.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FanOutBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static final int TASK_COUNT = 10_000;
+
+  private static final MetadataKey<String> LABEL = MetadataKey.single("label", String.class);
+
+  /** Whether tasks are submitted from the root context or from a populated logging context. */
+  @Param({"false", "true"})
+  public boolean inContext;
+
+  private ListeningExecutorService service;
+  private ImmutableList<Callable<Boolean>> tasks;
+
+  @Setup
+  public void setup() {
+    service =
+        GrpcPropagatingExecutorService.wrap(
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
+    Callable<Boolean> task =
+        () -> {
+          // Disabled by the Log4J configuration, so only the context lookup is measured.
+          logger.atFinest().log("Task running");
+          return true;
+        };
+    tasks = ImmutableList.copyOf(nCopies(TASK_COUNT, task));
+  }
+
+  @TearDown
+  public void shutdownExecutor() {
+    service.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASK_COUNT)
+  public Object submitEach() throws Exception {
+    return inContext(
+        () -> {
+          ImmutableList.Builder<ListenableFuture<Boolean>> futures = ImmutableList.builder();
+          for (Callable<Boolean> task : tasks) {
+            futures.add(service.submit(task));
+          }
+          return Futures.allAsList(futures.build()).get();
+        });
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASK_COUNT)
+  public Object submitAll() throws Exception {
+    return inContext(
+        () -> Futures.allAsList(GrpcPropagatingExecutorService.submitAll(service, tasks)).get());
+  }
+
+  private Object inContext(Callable<?> fanOut) throws Exception {
+    if (!inContext) {
+      return fanOut.call();
+    }
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext()
+            .withTags(Tags.of("request", "benchmark"))
+            .withMetadata(LABEL, "value")
+            .install()) {
+      return fanOut.call();
+    }
+  }
+}
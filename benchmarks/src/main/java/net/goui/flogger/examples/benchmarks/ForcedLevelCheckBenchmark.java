@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.context.LogLevelMap;
+import com.google.common.flogger.context.ScopedLoggingContext.LoggingContextCloseable;
+import com.google.common.flogger.context.ScopedLoggingContexts;
+import com.google.common.flogger.context.Tags;
+import java.util.logging.Level;
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of a disabled log statement, depending on the logging context it runs in. Unlike {@link
+ * ScopedContextBenchmark}, contexts are installed once (as for a long running request), so only
+ * the level check of each log statement is measured.
+ *
+ * <p>Disabled statements must check whether the current context forces them to be logged. Each
+ * {@link LogLevelMap} is compiled into a trie of logger name segments when it is created, and the
+ * check is skipped entirely until a context with a level map has been installed (at which point
+ * every subsequent statement must look up the current context, even outside of contexts).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ForcedLevelCheckBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  // The same map as in AdvancedExamples, which forces logging at FINE, but not below.
+  private static final LogLevelMap FINE_LOGGING = LogLevelMap.create(Level.FINE);
+
+  /** The context in which the disabled log statement is run. */
+  public enum Context {
+    /** No context has ever been installed. */
+    NONE,
+    /** No current context, but a context with a level map was previously installed. */
+    NONE_AFTER_LEVEL_MAP,
+    /** A context with tags, but no level map. */
+    WITHOUT_LEVEL_MAP,
+    /** A context with a level map, which does not force the log statement. */
+    WITH_LEVEL_MAP
+  }
+
+  @Param public Context context;
+
+  private LoggingContextCloseable installed = null;
+
+  @Setup
+  public void installContext() {
+    switch (context) {
+      case NONE -> {}
+      case NONE_AFTER_LEVEL_MAP ->
+          ScopedLoggingContexts.newContext().withLogLevelMap(FINE_LOGGING).install().close();
+      case WITHOUT_LEVEL_MAP ->
+          installed = ScopedLoggingContexts.newContext().withTags(Tags.of("task", 1)).install();
+      case WITH_LEVEL_MAP ->
+          installed = ScopedLoggingContexts.newContext().withLogLevelMap(FINE_LOGGING).install();
+    }
+  }
+
+  @TearDown
+  public void closeContext() {
+    if (installed != null) {
+      installed.close();
+      installed = null;
+    }
+  }
+
+  @Benchmark
+  public void disabledStatement() {
+    logger.atFinest().log("Disabled unless forced");
+  }
+}
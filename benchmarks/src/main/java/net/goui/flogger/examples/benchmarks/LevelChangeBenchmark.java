@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.RuntimeLevelControl;
+import net.goui.flogger.testing.LevelClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The latency of enabled log statements while another thread repeatedly changes log levels,
+ * either for the whole logger tree (as {@code LevelConfig} does) or for a single named logger via
+ * {@link RuntimeLevelControl}.
+ *
+ * <p>Many unrelated loggers are created first, to model a large service. Compare the tail of the
+ * {@code levelChange:log} latency distribution for each strategy:
+ *
+ * <pre>{@code
+ * java --enable-preview -jar target/benchmarks.jar LevelChange
+ * }</pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class LevelChangeBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final String CHANGED_NAME = "net.goui.flogger.examples.benchmarks.changed";
+
+  @Param({"setAllLevels", "incremental"})
+  public String strategy;
+
+  @Param({"10000"})
+  public int loggerCount;
+
+  private boolean isFine = false;
+
+  @Setup(Level.Trial)
+  public void createLoggers() {
+    for (int n = 0; n < loggerCount; n++) {
+      LogManager.getLogger("com.example.service.Class" + n);
+    }
+  }
+
+  @Benchmark
+  @Group("levelChange")
+  @GroupThreads(3)
+  public void log() {
+    logger.atInfo().log("Hello World");
+  }
+
+  @Benchmark
+  @Group("levelChange")
+  @GroupThreads(1)
+  public void changeLevel() {
+    // The logging threads log at INFO, so are enabled for either level.
+    isFine = !isFine;
+    LevelClass level = isFine ? LevelClass.FINE : LevelClass.INFO;
+    if (strategy.equals("incremental")) {
+      RuntimeLevelControl.setLevel(CHANGED_NAME, level);
+    } else {
+      Configurator.setAllLevels(
+          "", isFine ? org.apache.logging.log4j.Level.DEBUG : org.apache.logging.log4j.Level.INFO);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static net.goui.flogger.examples.CachedLogSites.lazyLogSite;
+import static net.goui.flogger.examples.CachedLogSites.withLogSite;
+
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.CachedLogSites.LazyLogSite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Enabled log statements with the log site determined by Flogger, compared to a per-statement
+ * constant log site from {@link net.goui.flogger.examples.CachedLogSites}, which avoids walking
+ * the stack. Rate limiting is used so the cost of resolving the log site is not hidden by
+ * formatting and output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogSiteBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final LazyLogSite LAZY_LOG_SITE = lazyLogSite();
+
+  private int count = 0;
+
+  @Benchmark
+  public void floggerLogSite() {
+    logger.atInfo().every(1000).log("Enabled log statement: %d", count++);
+  }
+
+  @Benchmark
+  public void constantLogSite() {
+    withLogSite(logger.atInfo(), LAZY_LOG_SITE)
+        .every(1000)
+        .log("Enabled log statement: %d", count++);
+  }
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.MetadataKey.KeyValueHandler;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataHandler;
+import com.google.common.flogger.backend.MetadataKeyValueHandlers;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.goui.flogger.examples.CharSequenceKeyValueHandler;
+import net.goui.flogger.examples.JoiningMetadataKey;
+import net.goui.flogger.examples.MessagePattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering the metadata of a log event via Flogger's default metadata handler (which checks each
+ * key against the ignore list and then emits it via the key) compared to the cached rendering plan
+ * used by {@link MessagePattern} for {@code %{metadata}}. Every event has one ignored key ({@code
+ * LOG_EVERY_N}, as in {@code log4j2.xml}), a repeated key and a custom joining key, with the
+ * remaining keys being simple single valued keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetadataRenderingBenchmark {
+  private static final MetadataKey<?> IGNORED = LogContext.Key.LOG_EVERY_N;
+  private static final MetadataKey<Integer> REPEATED = MetadataKey.repeated("id", Integer.class);
+  private static final MetadataKey<String> JOINING =
+      new JoiningMetadataKey<>("path", String.class, '/');
+
+  @Param({"5", "10", "15"})
+  public int keyCount;
+
+  private final StringBuilder out = new StringBuilder();
+  private final Appender appender = new Appender(out);
+  private MetadataHandler<KeyValueHandler> defaultHandler;
+  private MessagePattern.Emitter emitter;
+  private MetadataProcessor metadata;
+
+  @Setup
+  public void setup() {
+    Set<MetadataKey<?>> ignored = Set.of(IGNORED, LogContext.Key.LOG_CAUSE);
+    defaultHandler = MetadataKeyValueHandlers.getDefaultHandler(ignored);
+    emitter =
+        MessagePattern.fromOptions(
+                Map.of(
+                    "pattern", "%{metadata}",
+                    "metadata.ignore.size", "1",
+                    "metadata.ignore.0", LogContext.Key.class.getName() + "#LOG_EVERY_N"))
+            .newEmitter();
+
+    List<MetadataKey<?>> keys = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    addEntry(keys, values, IGNORED, 100);
+    addEntry(keys, values, REPEATED, 1);
+    addEntry(keys, values, JOINING, "foo");
+    addEntry(keys, values, REPEATED, 2);
+    addEntry(keys, values, JOINING, "bar");
+    for (int n = 3; n < keyCount; n++) {
+      if (n % 2 == 0) {
+        addEntry(keys, values, MetadataKey.single("key" + n, String.class), "value" + n);
+      } else {
+        addEntry(keys, values, MetadataKey.single("key" + n, Integer.class), n);
+      }
+    }
+    metadata =
+        MetadataProcessor.forScopeAndLogSite(Metadata.empty(), new ListMetadata(keys, values));
+  }
+
+  private static void addEntry(
+      List<MetadataKey<?>> keys, List<Object> values, MetadataKey<?> key, Object value) {
+    keys.add(key);
+    values.add(value);
+  }
+
+  @Benchmark
+  public int defaultHandler() {
+    out.setLength(0);
+    metadata.process(defaultHandler, appender);
+    return out.length();
+  }
+
+  @Benchmark
+  public int cachedPlan() {
+    out.setLength(0);
+    // The "%{metadata}" pattern only formats the metadata, so needs no log data.
+    return emitter.appendTo(null, metadata, out).length();
+  }
+
+  /** Appends values in the same format (and with the same allocations) as the message pattern. */
+  private static final class Appender implements CharSequenceKeyValueHandler {
+    private final StringBuilder out;
+
+    Appender(StringBuilder out) {
+      this.out = out;
+    }
+
+    @Override
+    public void handleTransient(String label, CharSequence value) {
+      handle(label, value);
+    }
+
+    @Override
+    public void handle(String label, Object value) {
+      if (!out.isEmpty()) {
+        out.append(' ');
+      }
+      out.append(label).append('=');
+      if (value instanceof CharSequence text) {
+        out.append(text);
+      } else if (value instanceof Integer || value instanceof Long) {
+        out.append(((Number) value).longValue());
+      } else {
+        out.append(value);
+      }
+    }
+  }
+
+  /** Metadata held in lists (as in Flogger's own log context). */
+  private static final class ListMetadata extends Metadata {
+    private final List<MetadataKey<?>> keys;
+    private final List<Object> values;
+
+    ListMetadata(List<MetadataKey<?>> keys, List<Object> values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    @Override
+    public int size() {
+      return keys.size();
+    }
+
+    @Override
+    public MetadataKey<?> getKey(int n) {
+      return keys.get(n);
+    }
+
+    @Override
+    public Object getValue(int n) {
+      return values.get(n);
+    }
+
+    @Override
+    public <T> T findValue(MetadataKey<T> key) {
+      int index = keys.indexOf(key);
+      return index >= 0 ? key.cast(values.get(index)) : null;
+    }
+  }
+}
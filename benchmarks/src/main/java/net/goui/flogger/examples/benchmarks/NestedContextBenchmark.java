@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.context.ScopedLoggingContext.Builder;
+import com.google.common.flogger.context.ScopedLoggingContext.LoggingContextCloseable;
+import com.google.common.flogger.context.ScopedLoggingContexts;
+import com.google.common.flogger.context.Tags;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logging inside nested {@code ScopedLoggingContexts} (e.g. request, RPC, batch item, retry), where
+ * each context adds its own metadata and tags, compared to a single context holding the same
+ * metadata and tags.
+ *
+ * <p>Each context already holds a flattened snapshot of its own and its ancestors' metadata and
+ * tags (created once when the context is built), so log statements merge only that one snapshot
+ * with their log site metadata, and {@code enabledInContext} should not depend on the shape of the
+ * contexts. The cost of flattening is paid when each context is created, which is measured by
+ * {@code installInnermostContext}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NestedContextBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final int MAX_DEPTH = 8;
+  private static final MetadataKey<String> LEAF = MetadataKey.single("leaf", String.class);
+
+  @SuppressWarnings("unchecked")
+  private static final MetadataKey<String>[] KEYS = new MetadataKey[MAX_DEPTH];
+
+  static {
+    for (int n = 0; n < MAX_DEPTH; n++) {
+      KEYS[n] = MetadataKey.single("key" + n, String.class);
+    }
+  }
+
+  /** Whether each level of metadata is added by its own nested context, or all by one context. */
+  public enum Shape {
+    NESTED,
+    SINGLE
+  }
+
+  @Param({"1", "2", "3", "4", "5", "6", "7", "8"})
+  public int depth;
+
+  @Param public Shape shape;
+
+  private final Deque<LoggingContextCloseable> contexts = new ArrayDeque<>();
+  private String leafValue = "leaf";
+
+  @Setup
+  public void installContexts() {
+    if (shape == Shape.NESTED) {
+      for (int n = 0; n < depth; n++) {
+        contexts.push(newContext(n, n + 1).install());
+      }
+    } else {
+      contexts.push(newContext(0, depth).install());
+    }
+  }
+
+  // Returns a context builder with the metadata and tags for the given range of levels.
+  private static Builder newContext(int start, int end) {
+    Builder builder = ScopedLoggingContexts.newContext();
+    Tags.Builder tags = Tags.builder();
+    for (int n = start; n < end; n++) {
+      builder.withMetadata(KEYS[n], "value" + n);
+      tags.addTag("tag" + n, n);
+    }
+    return builder.withTags(tags.build());
+  }
+
+  @TearDown
+  public void closeContexts() {
+    // Contexts must be closed in the reverse order to which they were installed.
+    while (!contexts.isEmpty()) {
+      contexts.pop().close();
+    }
+  }
+
+  @Benchmark
+  public void enabledInContext() {
+    logger.atInfo().log("Logging in a context");
+  }
+
+  @Benchmark
+  public void installInnermostContext() {
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext().withMetadata(LEAF, leafValue).install()) {
+      // Measure only the cost of creating a context below the existing contexts.
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import java.util.logging.Level;
+import net.goui.flogger.examples.PrintfFormatPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting printf style log messages by re-parsing the format string each time (as Flogger's
+ * default message formatter does) compared to walking a cached {@link PrintfFormatPlan}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrintfFormattingBenchmark {
+  /** Formats similar to those in the examples, each with a fixed set of arguments. */
+  public enum Format {
+    DECIMAL("Fibonacci [Sampled]: fib(%d) = %d", 16, 987L),
+    HEX("With printf formatting: %#x + %#x = %#x", 23, 19, 42),
+    STRING("Task %s: Step %d/%d", "foo", 3, 10);
+
+    private final String format;
+    private final Object[] args;
+
+    Format(String format, Object... args) {
+      this.format = format;
+      this.args = args;
+    }
+  }
+
+  @Param public Format format;
+
+  private final StringBuilder out = new StringBuilder();
+  private LogData data;
+
+  @Setup
+  public void setup() {
+    data = new MessageOnlyLogData(format.format, format.args);
+  }
+
+  @Benchmark
+  public int parseEachTime() {
+    out.setLength(0);
+    return BaseMessageFormatter.appendFormattedMessage(data, out).length();
+  }
+
+  @Benchmark
+  public int cachedPlan() {
+    out.setLength(0);
+    return PrintfFormatPlan.appendFormattedMessage(data, out).length();
+  }
+
+  /** Log data with only the message template and arguments (all that message formatting uses). */
+  private static final class MessageOnlyLogData implements LogData {
+    private final TemplateContext context;
+    private final Object[] args;
+
+    MessageOnlyLogData(String format, Object[] args) {
+      this.context = new TemplateContext(DefaultPrintfMessageParser.getInstance(), format);
+      this.args = args;
+    }
+
+    @Override
+    public TemplateContext getTemplateContext() {
+      return context;
+    }
+
+    @Override
+    public Object[] getArguments() {
+      return args;
+    }
+
+    @Override
+    public Object getLiteralArgument() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Level getLevel() {
+      return Level.INFO;
+    }
+
+    @Override
+    public long getTimestampMicros() {
+      return 0;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+      return 0;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return "benchmark";
+    }
+
+    @Override
+    public LogSite getLogSite() {
+      return LogSite.INVALID;
+    }
+
+    @Override
+    public Metadata getMetadata() {
+      return Metadata.empty();
+    }
+
+    @Override
+    public boolean wasForced() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of enabled, rate limited, log statements (as used in {@code
+ * BasicExamples.rateLimitExample()}). Almost every call is suppressed by the rate limiter, so this
+ * mostly measures the log site lookup and rate limit state update, rather than formatting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RateLimitedLoggingBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private long n = 16;
+  private long value = 987;
+
+  @Benchmark
+  public void every() {
+    logger.atInfo().every(1000).log("Fibonacci [Sampled]: fib(%d) = %d", n, value);
+  }
+
+  @Benchmark
+  public void atMostEvery() {
+    logger.atInfo().atMostEvery(2, SECONDS).log("Fibonacci [Rate Limited]: fib(%d) = %d", n, value);
+  }
+
+  @Benchmark
+  public void everyAndAtMostEvery() {
+    logger
+        .atInfo()
+        .every(1000)
+        .atMostEvery(2, SECONDS)
+        .log("Fibonacci [Both]: fib(%d) = %d", n, value);
+  }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import com.google.common.flogger.LogContext;
+import java.util.ArrayList;
+import java.util.List;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.StripedRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of a single rate limited log site called from many threads, comparing Flogger's
+ * {@code every(N)} and {@code atMostEvery(...)} to {@link StripedRateLimiter}.
+ *
+ * <p>JMH runs each benchmark with a single thread count (set with {@code -t}), so run this class
+ * directly to measure scaling from 1 to 64 threads:
+ *
+ * <pre>{@code
+ * java --enable-preview -cp target/benchmarks.jar \
+ *     net.goui.flogger.examples.benchmarks.RateLimiterScalingBenchmark
+ * }</pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterScalingBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+  private final StripedRateLimiter every = StripedRateLimiter.every(1000);
+  private final StripedRateLimiter atMostEvery = StripedRateLimiter.atMostEvery(100, MICROSECONDS);
+
+  @Benchmark
+  public void floggerEvery() {
+    logger.atInfo().every(1000).log("Rate limited");
+  }
+
+  @Benchmark
+  public void stripedEvery() {
+    FluentLogger.Api api = logger.atInfo();
+    if (api.isEnabled()) {
+      int skipped = every.check();
+      if (skipped >= 0) {
+        api.with(LogContext.Key.SKIPPED_LOG_COUNT, skipped).log("Rate limited");
+      }
+    }
+  }
+
+  @Benchmark
+  public void floggerAtMostEvery() {
+    logger.atInfo().atMostEvery(100, MICROSECONDS).log("Rate limited");
+  }
+
+  @Benchmark
+  public void stripedAtMostEvery() {
+    FluentLogger.Api api = logger.atInfo();
+    if (api.isEnabled()) {
+      int skipped = atMostEvery.check();
+      if (skipped >= 0) {
+        api.with(LogContext.Key.SKIPPED_LOG_COUNT, skipped).log("Rate limited");
+      }
+    }
+  }
+
+  /** Runs all benchmarks in this class for each thread count, and prints a scaling table. */
+  public static void main(String[] args) throws RunnerException {
+    List<String> rows = new ArrayList<>();
+    for (int threads : THREAD_COUNTS) {
+      Options options =
+          new OptionsBuilder()
+              .include(RateLimiterScalingBenchmark.class.getName())
+              .threads(threads)
+              .jvmArgsAppend("--enable-preview", BenchmarkMain.LOG4J_CONFIG)
+              .build();
+      for (RunResult result : new Runner(options).run()) {
+        rows.add(
+            String.format(
+                "%-20s %7d %12.1f",
+                result.getParams().getBenchmark().replaceAll(".*\\.", ""),
+                threads,
+                result.getPrimaryResult().getScore()));
+      }
+    }
+    System.out.printf("%n%-20s %7s %12s%n", "Benchmark", "Threads", "ops/us");
+    rows.stream().sorted().forEach(System.out::println);
+  }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.context.LogLevelMap;
+import com.google.common.flogger.context.ScopedLoggingContext.LoggingContextCloseable;
+import com.google.common.flogger.context.ScopedLoggingContexts;
+import com.google.common.flogger.context.Tags;
+import java.util.logging.Level;
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of logging with {@code ScopedLoggingContexts}, both for creating the context itself and
+ * for log statements which must merge context metadata or check for forced logging.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScopedContextBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final MetadataKey<String> LABEL = MetadataKey.single("label", String.class);
+  private static final LogLevelMap FINE_LOGGING = LogLevelMap.create(Level.FINE);
+
+  private String taskName = "task1";
+
+  @Benchmark
+  public void installContextOnly() {
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext().withTags(Tags.of("task", taskName)).install()) {
+      // Measure only the context overhead.
+    }
+  }
+
+  @Benchmark
+  public void enabledInContextWithTags() {
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext().withTags(Tags.of("task", taskName)).install()) {
+      logger.atInfo().log("Task: START");
+    }
+  }
+
+  @Benchmark
+  public void enabledInContextWithMetadata() {
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext().withMetadata(LABEL, taskName).install()) {
+      logger.atInfo().log("Task: START");
+    }
+  }
+
+  @Benchmark
+  public void disabledInContextWithoutLevelMap() {
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext().withMetadata(LABEL, taskName).install()) {
+      logger.atFine().log("Detailed logging within a task");
+    }
+  }
+
+  @Benchmark
+  public void forcedInContextWithLevelMap() {
+    try (LoggingContextCloseable ctx =
+        ScopedLoggingContexts.newContext().withLogLevelMap(FINE_LOGGING).install()) {
+      logger.atFine().log("Detailed logging within a task");
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.flogger.StackSize;
+import net.goui.flogger.FluentLogger;
+import net.goui.flogger.examples.CachedStackTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logging with a stack trace via {@code withStackTrace(size)} compared to {@link
+ * CachedStackTrace}, with each log statement called from a fixed depth of recursion (so there
+ * are more stack frames than the largest limited size).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackTraceBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private static final int CALL_DEPTH = 64;
+
+  @Param({"SMALL", "MEDIUM", "LARGE", "FULL"})
+  public StackSize size;
+
+  @Benchmark
+  public void withStackTrace() {
+    recurse(CALL_DEPTH, true);
+  }
+
+  @Benchmark
+  public void cachedStackTrace() {
+    recurse(CALL_DEPTH, false);
+  }
+
+  private void recurse(int depth, boolean useFlogger) {
+    if (depth > 0) {
+      recurse(depth - 1, useFlogger);
+    } else if (useFlogger) {
+      logger.atInfo().withStackTrace(size).log("Logging with caller context!");
+    } else {
+      CachedStackTrace.capture(logger.atInfo(), size).log("Logging with caller context!");
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static net.goui.flogger.examples.TemplateLogPlan.at;
+
+import net.goui.flogger.FluentLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of String Template log statements (as used in {@code FloggerNextExamples}) compared to
+ * the equivalent printf style log statements, and to templates processed via cached plans (see
+ * {@link net.goui.flogger.examples.TemplateLogPlan}), for both enabled and disabled log levels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringTemplateBenchmark {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private int a = 23;
+  private int b = 19;
+
+  @Benchmark
+  public void enabledTemplate() {
+    logger.atInfo()."Using String Templates: \{a} + \{b} = \{a + b}".log();
+  }
+
+  @Benchmark
+  public void enabledTemplateWithDirectives() {
+    logger.atInfo()."With printf formatting: %#x\{a} + %#x\{b} = %#x\{a + b}".log();
+  }
+
+  @Benchmark
+  public void enabledCompiledTemplate() {
+    at(logger.atInfo())."Using String Templates: \{a} + \{b} = \{a + b}".log();
+  }
+
+  @Benchmark
+  public void enabledCompiledTemplateWithDirectives() {
+    at(logger.atInfo())."With printf formatting: %#x\{a} + %#x\{b} = %#x\{a + b}".log();
+  }
+
+  @Benchmark
+  public void enabledPrintf() {
+    logger.atInfo().log("Using printf: %d + %d = %d", a, b, a + b);
+  }
+
+  @Benchmark
+  public void enabledPrintfWithDirectives() {
+    logger.atInfo().log("With printf formatting: %#x + %#x = %#x", a, b, a + b);
+  }
+
+  @Benchmark
+  public void disabledTemplate() {
+    logger.atFine()."Using String Templates: \{a} + \{b} = \{a + b}".log();
+  }
+
+  @Benchmark
+  public void disabledCompiledTemplate() {
+    at(logger.atFine())."Using String Templates: \{a} + \{b} = \{a + b}".log();
+  }
+
+  @Benchmark
+  public void disabledPrintf() {
+    logger.atFine().log("Using printf: %d + %d = %d", a, b, a + b);
+  }
+}
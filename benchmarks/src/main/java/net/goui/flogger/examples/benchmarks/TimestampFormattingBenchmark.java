@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples.benchmarks;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import net.goui.flogger.examples.CachedTimestampFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting log timestamps from scratch for every event (as the {@code %{timestamp}} token does by
+ * default) compared to a {@link CachedTimestampFormatter}. Timestamps advance by 5µs per event (as
+ * for 200,000 events per second), so most events share a second with the previous event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimestampFormattingBenchmark {
+  private static final long EVENT_INTERVAL_NANOS = 5_000;
+
+  /** The default ISO-8601 format, and a typical custom pattern in the local time zone. */
+  public enum Format {
+    ISO_INSTANT(DateTimeFormatter.ISO_INSTANT),
+    LOCAL_PATTERN(
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault()));
+
+    private final DateTimeFormatter formatter;
+
+    Format(DateTimeFormatter formatter) {
+      this.formatter = formatter;
+    }
+  }
+
+  @Param public Format format;
+
+  private final StringBuilder out = new StringBuilder();
+  private DateTimeFormatter formatter;
+  private CachedTimestampFormatter cachedFormatter;
+  private long timestampNanos;
+
+  @Setup
+  public void setup() {
+    formatter = format.formatter;
+    cachedFormatter = CachedTimestampFormatter.of(formatter);
+    // Not a whole number of milliseconds, so ISO-8601 timestamps have varying lengths.
+    timestampNanos = System.currentTimeMillis() * 1_000_000 + 1_234;
+  }
+
+  @Benchmark
+  public int formatEachTime() {
+    out.setLength(0);
+    timestampNanos += EVENT_INTERVAL_NANOS;
+    formatter.formatTo(Instant.ofEpochSecond(0, timestampNanos), out);
+    return out.length();
+  }
+
+  @Benchmark
+  public int cachedSecond() {
+    out.setLength(0);
+    timestampNanos += EVENT_INTERVAL_NANOS;
+    return cachedFormatter.appendTo(timestampNanos, out).length();
+  }
+}
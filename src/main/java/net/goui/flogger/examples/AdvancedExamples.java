@@ -16,7 +16,7 @@ import com.google.common.flogger.MetadataKey;
 import com.google.common.flogger.context.LogLevelMap;
 import com.google.common.flogger.context.ScopedLoggingContext;
 import com.google.common.flogger.context.ScopedLoggingContexts;
-import java.util.Iterator;
+import java.time.Duration;
 import java.util.logging.Level;
 import net.goui.flogger.FluentLogger;
 
@@ -57,37 +57,27 @@ public final class AdvancedExamples {
    * A custom metadata key can process its values.
    *
    * <p>Note: Some restrictions apply to how values can be processed and care must be taken to avoid
-   * doing "work" since processing may happen very frequently.
+   * doing "work" since processing may happen very frequently. In this case {@link
+   * JoiningMetadataKey} joins the values with '/', which can be done without allocating anything if
+   * the backend supports {@link CharSequenceKeyValueHandler}.
    */
   private static final MetadataKey<String> CUSTOM_LABEL =
-      new MetadataKey<>("custom", String.class, /* canRepeat= */ true) {
-        @Override
-        protected void emitRepeated(Iterator<String> values, KeyValueHandler kvh) {
-          StringBuilder joined = new StringBuilder();
-          values.forEachRemaining(v -> joined.append(v).append('/'));
-          if (!joined.isEmpty()) {
-            joined.setLength(joined.length() - 1);
-          }
-          kvh.handle(getLabel(), joined.toString());
-        }
-      };
+      new JoiningMetadataKey<>("custom", String.class, '/');
 
   /**
    * A boolean metadata key can be used as a purely procedural key, pulling its current value from
    * the system environment.
    *
-   * <p>Note: In this simple example the value is not cached, but it probably should be. A more
-   * complex example might sample underlying system data with some minimum rate period to avoid a
-   * lot of repeated work.
+   * <p>Note: Procedural keys are evaluated for every log statement they are added to, so to avoid a
+   * lot of repeated work, this example uses {@link SampledMetadataKey} to sample the underlying
+   * system data at most once per minute.
    */
   private static final MetadataKey<Boolean> USER_HOME =
-      new MetadataKey<>("home", Boolean.class, /* canRepeat= */ false) {
+      new SampledMetadataKey<String>("home", Duration.ofMinutes(1)) {
         @Override
-        protected void emit(Boolean value, KeyValueHandler kvh) {
-          if (value) {
-            String user = System.getProperty("user.home");
-            kvh.handle(getLabel(), user != null ? user : "<unknown>");
-          }
+        protected String sample() {
+          String user = System.getProperty("user.home");
+          return user != null ? user : "<unknown>";
         }
       };
 
@@ -189,6 +179,13 @@ public final class AdvancedExamples {
     SAD
   }
 
+  /**
+   * Aggregation state for high cardinality keys (e.g. tenant IDs) should be bounded. This strategy
+   * keeps state for at most 1000 tenants per log site, evicting the least recently used tenants.
+   */
+  private static final BoundedBucketingStrategy<String> TENANTS =
+      BoundedBucketingStrategy.create("tenant", 1000);
+
   private static void logAggregationExample() {
     // Aggregate stateful logging using distinct enum values. Without adding "per(mood)" to the
     // log statement, there would be no logging for the "SAD" case.
@@ -206,6 +203,21 @@ public final class AdvancedExamples {
       logger.atInfo().every(50).per(mood).log("I'm feeling: %s", mood);
     }
 
+    // Using a bounded bucketing strategy with high cardinality keys means that the state kept for
+    // aggregation cannot grow without limit (without this, each tenant ID is kept forever).
+    // -------------------------------------------------------------------------------------------
+    // 17:39:29.175 [main] INFO  net.goui.flogger.examples.AdvancedExamples
+    //     Request failed for: tenant-0 [CONTEXT ratelimit_count=50 group_by="tenant-0" ]
+    // 17:39:29.175 [main] INFO  net.goui.flogger.examples.AdvancedExamples
+    //     Request failed for: tenant-1 [CONTEXT ratelimit_count=50 group_by="tenant-1" ]
+    // 17:39:29.176 [main] INFO  net.goui.flogger.examples.AdvancedExamples
+    //     Request failed for: tenant-2 [CONTEXT ratelimit_count=50 group_by="tenant-2" ]
+    // -------------------------------------------------------------------------------------------
+    for (int n = 0; n < 150; n++) {
+      String tenant = "tenant-" + (n % 3);
+      logger.atInfo().every(50).per(tenant, TENANTS).log("Request failed for: %s", tenant);
+    }
+
     // Using the REQUEST scope type, each request logs independently for rate limiting and other
     // stateful logging. Without this, logs for task "Bar" would not have appeared.
     // -------------------------------------------------------------------------------------------
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.system.BackendFactory;
+import net.goui.flogger.examples.AsyncLoggingStage.OverflowPolicy;
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * A Flogger backend factory which formats and outputs log events on background threads (see {@link
+ * AsyncLoggingStage}), using backends from another factory. Logging threads only capture a snapshot
+ * of each event, so message arguments, String Template values, metadata and the message pattern are
+ * all formatted by the background threads.
+ *
+ * <p>This replaces the normal backend, so must be selected explicitly at startup:
+ *
+ * <pre>{@code
+ * -Dflogger.backend_factory=net.goui.flogger.examples.AsyncFormattingBackendFactory#getInstance
+ * -Dlog4j.shutdownHookEnabled=false
+ * }</pre>
+ *
+ * <p>Optional system properties:
+ *
+ * <ul>
+ *   <li>{@code flogger.async_backend.delegate}: The backend factory to use for formatting and
+ *       output, as {@code <class-name>#<method-name>} (default: {@link
+ *       GarbageFreeLog4jBackendFactory#getInstance()}).
+ *   <li>{@code flogger.async_backend.workers}: Number of worker threads (default: 1).
+ *   <li>{@code flogger.async_backend.queue_size}: Capacity of each worker's queue (default: 8192).
+ *   <li>{@code flogger.async_backend.overflow}: {@code BLOCK} or {@code DROP_LOWEST_LEVEL_FIRST}
+ *       (default: {@code BLOCK}).
+ * </ul>
+ *
+ * <p>Note that values passed to log statements must not be modified after logging, since they are
+ * formatted later. Since log statements are never affected by the speed of the underlying logging
+ * system (unless the queues are full), this should normally be used with synchronous Log4J loggers.
+ *
+ * <p>Queued events are output when the JVM exits, via a shutdown hook which then stops Log4J.
+ * Log4J's own shutdown hook must be disabled (as above, or via {@code shutdownHook="disable"} in
+ * the Log4J configuration), since it would otherwise stop Log4J concurrently, and queued events
+ * would be lost.
+ */
+public final class AsyncFormattingBackendFactory extends BackendFactory {
+  private static final String DEFAULT_DELEGATE =
+      GarbageFreeLog4jBackendFactory.class.getName() + "#getInstance";
+
+  private static final class LazyHolder {
+    private static final AsyncFormattingBackendFactory INSTANCE =
+        new AsyncFormattingBackendFactory();
+  }
+
+  /** Called by Flogger to obtain the backend factory. */
+  public static AsyncFormattingBackendFactory getInstance() {
+    return LazyHolder.INSTANCE;
+  }
+
+  private final BackendFactory delegate;
+  private final AsyncLoggingStage stage;
+
+  private AsyncFormattingBackendFactory() {
+    this.delegate =
+        loadFactory(System.getProperty("flogger.async_backend.delegate", DEFAULT_DELEGATE));
+    this.stage =
+        AsyncLoggingStage.create(
+            Integer.getInteger("flogger.async_backend.workers", 1),
+            Integer.getInteger("flogger.async_backend.queue_size", 8192),
+            OverflowPolicy.valueOf(System.getProperty("flogger.async_backend.overflow", "BLOCK")));
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  stage.shutdown();
+                  LogManager.shutdown();
+                }));
+  }
+
+  private static BackendFactory loadFactory(String spec) {
+    int hash = spec.indexOf('#');
+    checkArgument(hash > 0, "invalid backend factory (expected <class>#<method>): %s", spec);
+    try {
+      return (BackendFactory)
+          Class.forName(spec.substring(0, hash)).getMethod(spec.substring(hash + 1)).invoke(null);
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("cannot load backend factory: " + spec, e);
+    }
+  }
+
+  /** Returns the current state of the background logging queues. */
+  public AsyncLoggingStage.Metrics metrics() {
+    return stage.metrics();
+  }
+
+  @Override
+  public LoggerBackend create(String loggingClassName) {
+    return stage.wrap(delegate.create(loggingClassName));
+  }
+
+  @Override
+  public String toString() {
+    return "Async formatting backend (via " + delegate + ")";
+  }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfig;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.jmx.RingBufferAdmin;
+
+/**
+ * Reports the state of the asynchronous logging queue when running with {@code log4j2-async.xml}.
+ *
+ * <p>Queue depth is read from the ring buffer of the async root logger, and the discarded/delayed
+ * counts are only recorded when {@link MeteredQueueFullPolicy} is installed.
+ */
+public final class AsyncLoggingMetrics {
+  /** An immutable snapshot of the async logging queue. */
+  public record Snapshot(long capacity, long depth, long delayedCount, long discardedCount) {
+    @Override
+    public String toString() {
+      return String.format(
+          "queue=%d/%d, delayed=%d, discarded=%d", depth, capacity, delayedCount, discardedCount);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the async logging queue for the current Log4J configuration. If the root
+   * logger is not asynchronous, the reported capacity and depth are zero.
+   */
+  public static Snapshot snapshot() {
+    long capacity = 0;
+    long depth = 0;
+    RingBufferAdmin ringBuffer = getRootRingBuffer();
+    if (ringBuffer != null) {
+      capacity = ringBuffer.getBufferSize();
+      depth = capacity - ringBuffer.getRemainingCapacity();
+    }
+    return new Snapshot(
+        capacity,
+        depth,
+        MeteredQueueFullPolicy.getDelayedCount(),
+        MeteredQueueFullPolicy.getDiscardedCount());
+  }
+
+  private static RingBufferAdmin getRootRingBuffer() {
+    if (!(LogManager.getContext(false) instanceof LoggerContext context)) {
+      return null;
+    }
+    Configuration config = context.getConfiguration();
+    LoggerConfig root = config.getRootLogger();
+    // Only ask for the delegate if there's an async logger config, since asking creates it.
+    if (!(root instanceof AsyncLoggerConfig)) {
+      return null;
+    }
+    return config.getAsyncLoggerConfigDelegate().createRingBufferAdmin(context.getName(), "");
+  }
+
+  private AsyncLoggingMetrics() {}
+}
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * A backend stage which moves formatting and output of log events off the logging thread. Log
+ * statements only take a {@link LogEventSnapshot} of each event and add it to a bounded queue, and
+ * worker threads then pass each event to the wrapped backend (which formats and outputs it).
+ *
+ * <pre>{@code
+ * AsyncLoggingStage stage = AsyncLoggingStage.create(2, 8192, OverflowPolicy.BLOCK);
+ * LoggerBackend backend = stage.wrap(delegateFactory.create(loggingClassName));
+ * }</pre>
+ *
+ * <p>Each worker has its own queue, which is written by many logging threads but only read by that
+ * worker. Events from a logging thread always go to the same worker, so events from each thread
+ * are output in order (but events from different threads may be reordered).
+ *
+ * <p>When a queue is full, logging threads either wait for space ({@link OverflowPolicy#BLOCK}) or
+ * discard the lowest level event ({@link OverflowPolicy#DROP_LOWEST_LEVEL_FIRST}), which is either
+ * the oldest queued event of a lower level than the new event, or the new event itself. Events
+ * logged by the worker threads themselves (e.g. while formatting arguments) are output directly to
+ * avoid deadlock.
+ *
+ * <p>Once {@link #shutdown()} is called, events are output directly by the logging thread (and
+ * threads waiting for space in a queue stop waiting), since there may be no worker left to output
+ * them.
+ */
+public final class AsyncLoggingStage {
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+  // How often blocked logging threads and idle workers check whether the stage has been shut down.
+  private static final Duration STOP_CHECK_INTERVAL = Duration.ofMillis(100);
+  // Levels are grouped into buckets (one per standard level) to count queued events by level.
+  private static final ImmutableList<Level> BUCKET_LEVELS =
+      ImmutableList.of(
+          Level.FINEST, Level.FINER, Level.FINE, Level.CONFIG, Level.INFO, Level.WARNING,
+          Level.SEVERE);
+
+  /** What logging threads do when a queue is full. */
+  public enum OverflowPolicy {
+    /** Wait for space in the queue. */
+    BLOCK,
+    /** Discard the lowest level event, preferring to discard older events. */
+    DROP_LOWEST_LEVEL_FIRST
+  }
+
+  /** An immutable snapshot of the stage's queues. */
+  public record Metrics(long capacity, long depth, long delayedCount, long discardedCount) {
+    @Override
+    public String toString() {
+      return String.format(
+          "queue=%d/%d, delayed=%d, discarded=%d", depth, capacity, delayedCount, discardedCount);
+    }
+  }
+
+  /** Returns a new stage with running workers, which should be {@link #shutdown() shut down}. */
+  public static AsyncLoggingStage create(
+      int workerCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+    checkArgument(workerCount > 0, "invalid worker count: %s", workerCount);
+    checkArgument(queueCapacity > 0, "invalid queue capacity: %s", queueCapacity);
+    return new AsyncLoggingStage(workerCount, queueCapacity, overflowPolicy);
+  }
+
+  private static int bucketOf(Level level) {
+    int value = level.intValue();
+    for (int n = BUCKET_LEVELS.size() - 1; n > 0; n--) {
+      if (value >= BUCKET_LEVELS.get(n).intValue()) {
+        return n;
+      }
+    }
+    return 0;
+  }
+
+  /** A queued event and the backend it is for. */
+  private record Event(LogEventSnapshot data, LoggerBackend backend, int bucket) {}
+
+  private final ImmutableList<Worker> workers;
+  private final OverflowPolicy overflowPolicy;
+  private final LongAdder delayedCount = new LongAdder();
+  private final LongAdder discardedCount = new LongAdder();
+  private volatile boolean stopped = false;
+
+  private AsyncLoggingStage(int workerCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+    ImmutableList.Builder<Worker> workers = ImmutableList.builder();
+    for (int n = 0; n < workerCount; n++) {
+      Worker worker = new Worker(n, queueCapacity);
+      worker.start();
+      workers.add(worker);
+    }
+    this.workers = workers.build();
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /** Returns a backend which outputs events via the given backend, using this stage's workers. */
+  public LoggerBackend wrap(LoggerBackend backend) {
+    return new LoggerBackend() {
+      @Override
+      public String getLoggerName() {
+        return backend.getLoggerName();
+      }
+
+      @Override
+      public boolean isLoggable(Level level) {
+        return backend.isLoggable(level);
+      }
+
+      @Override
+      public void log(LogData data) {
+        if (stopped || Thread.currentThread() instanceof Worker) {
+          backend.log(data);
+        } else {
+          enqueue(new Event(LogEventSnapshot.of(data), backend, bucketOf(data.getLevel())));
+        }
+      }
+
+      @Override
+      public void handleError(RuntimeException error, LogData badData) {
+        backend.handleError(error, badData);
+      }
+    };
+  }
+
+  /** Returns the current state of this stage's queues. */
+  public Metrics metrics() {
+    long capacity = 0;
+    long depth = 0;
+    for (Worker worker : workers) {
+      capacity += worker.queue.size() + worker.queue.remainingCapacity();
+      depth += worker.queue.size();
+    }
+    return new Metrics(capacity, depth, delayedCount.sum(), discardedCount.sum());
+  }
+
+  private void enqueue(Event event) {
+    // The thread ID is stable, and (unlike its hash code) consecutive for new threads.
+    Worker worker = workers.get((int) (Thread.currentThread().threadId() % workers.size()));
+    if (!worker.offer(event) && !enqueueWhenFull(worker, event)) {
+      return;
+    }
+    // If the stage was stopped while the event was being queued, the worker may have already
+    // drained its queue, so output the event here (unless the worker has already taken it).
+    if (stopped && worker.remove(event)) {
+      event.backend().log(event.data());
+    }
+  }
+
+  // Returns whether the event was queued, or false if it was discarded (or output directly).
+  private boolean enqueueWhenFull(Worker worker, Event event) {
+    if (overflowPolicy == OverflowPolicy.BLOCK) {
+      delayedCount.increment();
+      try {
+        // Wait in intervals, since once stopped the worker may never make space in its queue.
+        while (!worker.offer(event, STOP_CHECK_INTERVAL)) {
+          if (stopped) {
+            event.backend().log(event.data());
+            return false;
+          }
+        }
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        discardedCount.increment();
+        return false;
+      }
+    }
+    // Discard queued events of a lower level until there is space (or there are none left).
+    while (worker.removeLowest(event.bucket())) {
+      discardedCount.increment();
+      if (worker.offer(event)) {
+        return true;
+      }
+    }
+    discardedCount.increment();
+    return false;
+  }
+
+  /**
+   * Stops the workers, waiting (for a limited time) for queued events to be output first. Events
+   * logged after this is called are output directly by the logging thread.
+   */
+  public void shutdown() {
+    stopped = true;
+    for (Worker worker : workers) {
+      worker.requestStop();
+    }
+    long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT.toNanos();
+    try {
+      for (Worker worker : workers) {
+        worker.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** A worker thread, and its queue of events (with counts of queued events by level). */
+  private static final class Worker extends Thread {
+    private final BlockingQueue<Event> queue;
+    private final AtomicIntegerArray bucketCounts = new AtomicIntegerArray(BUCKET_LEVELS.size());
+    private volatile boolean stopped = false;
+
+    Worker(int index, int capacity) {
+      super("flogger-async-" + index);
+      setDaemon(true);
+      this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    boolean offer(Event event) {
+      // Counted before adding, so the worker never sees an uncounted event.
+      bucketCounts.incrementAndGet(event.bucket());
+      if (queue.offer(event)) {
+        return true;
+      }
+      bucketCounts.decrementAndGet(event.bucket());
+      return false;
+    }
+
+    boolean offer(Event event, Duration timeout) throws InterruptedException {
+      bucketCounts.incrementAndGet(event.bucket());
+      boolean added = false;
+      try {
+        added = queue.offer(event, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        return added;
+      } finally {
+        if (!added) {
+          bucketCounts.decrementAndGet(event.bucket());
+        }
+      }
+    }
+
+    boolean remove(Event event) {
+      if (queue.remove(event)) {
+        bucketCounts.decrementAndGet(event.bucket());
+        return true;
+      }
+      return false;
+    }
+
+    // Removes the oldest event from the lowest level bucket below the given bucket (if any).
+    boolean removeLowest(int belowBucket) {
+      for (int bucket = 0; bucket < belowBucket; bucket++) {
+        if (bucketCounts.get(bucket) > 0) {
+          for (Event queued : queue) {
+            if (queued.bucket() == bucket && queue.remove(queued)) {
+              bucketCounts.decrementAndGet(bucket);
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+
+    // Workers are never interrupted to stop them, since that could affect the wrapped backend
+    // (e.g. interruptible file output) while it is outputting the remaining events.
+    void requestStop() {
+      stopped = true;
+    }
+
+    @Override
+    public void run() {
+      while (!stopped) {
+        try {
+          Event event = queue.poll(STOP_CHECK_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+          if (event != null) {
+            output(event);
+          }
+        } catch (InterruptedException e) {
+          // Not used to stop workers, so keep going (the interrupt status is now cleared).
+        }
+      }
+      for (Event event = queue.poll(); event != null; event = queue.poll()) {
+        output(event);
+      }
+    }
+
+    private void output(Event event) {
+      bucketCounts.decrementAndGet(event.bucket());
+      try {
+        event.backend().log(event.data());
+      } catch (RuntimeException error) {
+        try {
+          event.backend().handleError(error, event.data());
+        } catch (RuntimeException e) {
+          // There's nowhere else to log to, so report the failure directly.
+          System.err.println("Cannot output log event: " + e);
+        }
+      }
+    }
+  }
+}
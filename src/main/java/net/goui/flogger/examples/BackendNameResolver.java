@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+
+/**
+ * Maps logging class names to backend names, using the same options as the Flogger Next backend
+ * naming strategies (see "Backend Naming" in the documentation), with a cost which does not depend
+ * on the number of configured roots.
+ *
+ * <p>Explicit roots and imported system roots are compiled into a trie of package name segments,
+ * so finding the most specific root for a class name costs time proportional to the depth of its
+ * package. The result for each package is memoized, so the many classes in a package (typically
+ * initialized in bursts at startup) share a single lookup. This can be used by custom backend
+ * factories which share backends between classes.
+ *
+ * <pre>{@code
+ * BackendNameResolver resolver =
+ *     BackendNameResolver.fromOptions(
+ *         Map.of("roots.size", "1", "roots.0", "com.myproject.*", "trim_at_least", "1"),
+ *         BackendNameResolver.log4jSystemRoots());
+ * // Returns "com.myproject.foo".
+ * String backendName = resolver.backendNameOf("com.myproject.foo.bar.MyClass");
+ * }</pre>
+ *
+ * <p>Roots normally name packages, but a system root can also name a class (if that class has its
+ * own logger configuration), in which case that class uses a backend with its own name. When
+ * trimming class names, at least the top-level package (or the name of a class in the default
+ * package) is retained.
+ */
+public final class BackendNameResolver {
+  private static final Splitter SEGMENTS = Splitter.on('.');
+  private static final Joiner JOINER = Joiner.on('.');
+  private static final String WILDCARD = ".*";
+  private static final int NOT_A_ROOT = -1;
+
+  /**
+   * Returns a resolver for the given naming options, which are keyed by the Flogger Next option
+   * names without the {@code "flogger.backend_naming."} prefix (e.g. {@code "trim_at_least"} or
+   * {@code "roots.size"}). The system roots are only used if {@code "use_system_roots"} is set.
+   */
+  public static BackendNameResolver fromOptions(
+      Map<String, String> options, Collection<String> systemRoots) {
+    int rootCount = intOption(options, "roots.size");
+    List<String> roots = new ArrayList<>();
+    for (int n = 0; n < rootCount; n++) {
+      String root = options.get("roots." + n);
+      checkArgument(root != null, "missing root entry: roots.%s", n);
+      roots.add(root);
+    }
+    if (Boolean.parseBoolean(options.get("use_system_roots"))) {
+      roots.addAll(systemRoots);
+    }
+    return new BackendNameResolver(
+        roots,
+        intOption(options, "trim_at_least"),
+        intOption(options, "retain_at_most"),
+        intOption(options, "default_root_extend"));
+  }
+
+  /** Returns the names of loggers with a configured level in the JDK logging properties. */
+  public static ImmutableSet<String> jdkSystemRoots() {
+    LogManager manager = LogManager.getLogManager();
+    return Collections.list(manager.getLoggerNames()).stream()
+        .filter(name -> !name.isEmpty() && manager.getProperty(name + ".level") != null)
+        .collect(toImmutableSet());
+  }
+
+  /** Returns the names of loggers in the current Log4J configuration (except the root logger). */
+  public static ImmutableSet<String> log4jSystemRoots() {
+    return LoggerContext.getContext(false).getConfiguration().getLoggers().keySet().stream()
+        .filter(name -> !name.isEmpty())
+        .collect(toImmutableSet());
+  }
+
+  private static int intOption(Map<String, String> options, String name) {
+    String value = options.get(name);
+    int n = value != null ? Integer.parseInt(value.trim()) : 0;
+    checkArgument(n >= 0, "option must not be negative: %s=%s", name, value);
+    return n;
+  }
+
+  /** A package name segment in the trie of roots. */
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    // The number of additional segments retained below this root, or NOT_A_ROOT.
+    private int extend = NOT_A_ROOT;
+  }
+
+  /**
+   * The memoized resolution of a package, where the backend name is null if classes in the
+   * package use their own name. The node is the trie entry for the package (if any), which is
+   * needed only when roots are also configured for individual classes in the package.
+   */
+  private record PackageResolution(String backendName, Node node) {}
+
+  private final Node root = new Node();
+  private final int trimAtLeast;
+  private final int retainAtMost;
+  private final Map<String, PackageResolution> byPackage = new ConcurrentHashMap<>();
+
+  private BackendNameResolver(
+      List<String> roots, int trimAtLeast, int retainAtMost, int defaultRootExtend) {
+    this.trimAtLeast = trimAtLeast;
+    this.retainAtMost = retainAtMost;
+    for (String spec : roots) {
+      int extend = 0;
+      while (spec.endsWith(WILDCARD)) {
+        spec = spec.substring(0, spec.length() - WILDCARD.length());
+        extend++;
+      }
+      checkArgument(!spec.isEmpty(), "invalid root specifier: %s", spec);
+      Node node = root;
+      for (String segment : SEGMENTS.split(spec)) {
+        node = node.children.computeIfAbsent(segment, s -> new Node());
+      }
+      // If the same root is given more than once, the most extended one wins.
+      node.extend = Math.max(node.extend, extend > 0 ? extend : defaultRootExtend);
+    }
+  }
+
+  /** Returns the backend name for the given (fully qualified) logging class name. */
+  public String backendNameOf(String loggingClassName) {
+    int lastDot = loggingClassName.lastIndexOf('.');
+    String packageName = lastDot >= 0 ? loggingClassName.substring(0, lastDot) : "";
+    PackageResolution resolution = byPackage.computeIfAbsent(packageName, this::resolve);
+    if (resolution.node() != null) {
+      Node classNode = resolution.node().children.get(loggingClassName.substring(lastDot + 1));
+      if (classNode != null && classNode.extend != NOT_A_ROOT) {
+        return loggingClassName;
+      }
+    }
+    return resolution.backendName() != null ? resolution.backendName() : loggingClassName;
+  }
+
+  private PackageResolution resolve(String packageName) {
+    List<String> segments =
+        packageName.isEmpty() ? List.of() : SEGMENTS.splitToList(packageName);
+    // Find the deepest root on the path of the package (visiting each segment once).
+    Node node = root;
+    int rootDepth = 0;
+    int rootExtend = NOT_A_ROOT;
+    for (int depth = 0; depth < segments.size() && node != null; depth++) {
+      node = node.children.get(segments.get(depth));
+      if (node != null && node.extend != NOT_A_ROOT) {
+        rootDepth = depth + 1;
+        rootExtend = node.extend;
+      }
+    }
+    // The node is only retained if it could hold roots for classes in this package.
+    Node packageNode = node != null && !node.children.isEmpty() ? node : null;
+    int keep;
+    if (rootExtend != NOT_A_ROOT) {
+      // Trimming options are not applied to classes under a root.
+      keep = Math.min(rootDepth + rootExtend, segments.size());
+    } else {
+      // Count segments of the class name (the package segments and the class itself).
+      keep = Math.max(segments.size() + 1 - trimAtLeast, 1);
+      if (retainAtMost > 0) {
+        keep = Math.min(keep, retainAtMost);
+      }
+      if (keep > segments.size()) {
+        return new PackageResolution(null, packageNode);
+      }
+    }
+    return new PackageResolution(JOINER.join(segments.subList(0, keep)), packageNode);
+  }
+}
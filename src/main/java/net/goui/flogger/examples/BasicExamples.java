@@ -15,7 +15,6 @@ import static com.google.common.flogger.StackSize.SMALL;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.time.Duration;
-import java.util.function.BiConsumer;
 import net.goui.flogger.FluentLogger;
 
 /**
@@ -134,11 +133,20 @@ public final class BasicExamples {
         "Fibonacci [Rate limited logging] = %d", rateLimitedFibonacci.calculate(16));
   }
 
+  /**
+   * Logs a step of the calculation. Using primitive parameters (rather than {@code BiConsumer<Long,
+   * Long>}) means values are only boxed by the logger if the log statement is actually emitted.
+   */
+  @FunctionalInterface
+  private interface StepLogger {
+    void log(long n, long value);
+  }
+
   private static class Fibonacci {
     private final Duration pausePerStep;
-    private final BiConsumer<Long, Long> logFn;
+    private final StepLogger logFn;
 
-    public Fibonacci(Duration pausePerStep, BiConsumer<Long, Long> logFn) {
+    public Fibonacci(Duration pausePerStep, StepLogger logFn) {
       this.pausePerStep = pausePerStep;
       this.logFn = logFn;
       // Don't let anyone set a ridiculous pause time.
@@ -150,7 +158,7 @@ public final class BasicExamples {
       checkArgument(n > 0);
       long value = (n <= 2) ? 1 : calculate(n - 1) + calculate(n - 2);
       pause();
-      logFn.accept(n, value);
+      logFn.log(n, value);
       return value;
     }
 
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.system.BackendFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+
+/**
+ * A Flogger backend factory which writes all log events to a compact binary log (see {@link
+ * BinaryLogWriter}) instead of formatting them as text. Use {@link BinaryLogDecoder} to render the
+ * log files as text.
+ *
+ * <p>This replaces the normal (e.g. Log4J) backend, so must be selected explicitly at startup:
+ *
+ * <pre>{@code
+ * -Dflogger.backend_factory=net.goui.flogger.examples.BinaryLogBackendFactory#getInstance
+ * }</pre>
+ *
+ * <p>Optional system properties:
+ *
+ * <ul>
+ *   <li>{@code flogger.binary_log.dir}: Directory for log files (default: {@code
+ *       <tmpdir>/flogger-binary}).
+ *   <li>{@code flogger.binary_log.segment_size_mb}: Size of each memory-mapped segment (default:
+ *       16).
+ *   <li>{@code flogger.binary_log.max_segments}: Number of segments to keep (default: 8).
+ *   <li>{@code flogger.binary_log.level}: Minimum level to log (default: INFO).
+ * </ul>
+ */
+public final class BinaryLogBackendFactory extends BackendFactory {
+  private static final class LazyHolder {
+    private static final BinaryLogBackendFactory INSTANCE = new BinaryLogBackendFactory();
+  }
+
+  /** Called by Flogger to obtain the backend factory. */
+  public static BackendFactory getInstance() {
+    return LazyHolder.INSTANCE;
+  }
+
+  private final BinaryLogWriter writer;
+  private final Level level;
+
+  private BinaryLogBackendFactory() {
+    Path directory =
+        Path.of(
+            System.getProperty(
+                "flogger.binary_log.dir",
+                Path.of(System.getProperty("java.io.tmpdir"), "flogger-binary").toString()));
+    int segmentSizeMb = Integer.getInteger("flogger.binary_log.segment_size_mb", 16);
+    int maxSegments = Integer.getInteger("flogger.binary_log.max_segments", 8);
+    this.level = Level.parse(System.getProperty("flogger.binary_log.level", "INFO"));
+    try {
+      String filePrefix = "flogger-" + ProcessHandle.current().pid();
+      this.writer = new BinaryLogWriter(directory, filePrefix, segmentSizeMb << 20, maxSegments);
+    } catch (IOException e) {
+      throw new UncheckedIOException("cannot create binary log in: " + directory, e);
+    }
+    // Segments are memory-mapped, so are written by the OS even if this isn't run, but flushing
+    // at shutdown means nothing is lost if the machine subsequently fails.
+    Runtime.getRuntime().addShutdownHook(new Thread(writer::close));
+  }
+
+  @Override
+  public LoggerBackend create(String loggingClassName) {
+    return new Backend(loggingClassName);
+  }
+
+  @Override
+  public String toString() {
+    return "Binary log backend";
+  }
+
+  private final class Backend extends LoggerBackend {
+    private final String loggerName;
+
+    Backend(String loggerName) {
+      this.loggerName = loggerName;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return loggerName;
+    }
+
+    @Override
+    public boolean isLoggable(Level lvl) {
+      return lvl.intValue() >= level.intValue();
+    }
+
+    @Override
+    public void log(LogData data) {
+      try {
+        writer.write(data);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void handleError(RuntimeException error, LogData badData) {
+      // There's nowhere else to log to, so report the failure directly.
+      System.err.println("Cannot write binary log event: " + error);
+    }
+  }
+}
@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.goui.flogger.examples.BinaryLogWriter.BRACE;
+import static net.goui.flogger.examples.BinaryLogWriter.BYTE;
+import static net.goui.flogger.examples.BinaryLogWriter.CHAR;
+import static net.goui.flogger.examples.BinaryLogWriter.DOUBLE;
+import static net.goui.flogger.examples.BinaryLogWriter.END;
+import static net.goui.flogger.examples.BinaryLogWriter.EVENT;
+import static net.goui.flogger.examples.BinaryLogWriter.FALSE;
+import static net.goui.flogger.examples.BinaryLogWriter.FLOAT;
+import static net.goui.flogger.examples.BinaryLogWriter.FORCED;
+import static net.goui.flogger.examples.BinaryLogWriter.HAS_CAUSE;
+import static net.goui.flogger.examples.BinaryLogWriter.INT;
+import static net.goui.flogger.examples.BinaryLogWriter.LITERAL;
+import static net.goui.flogger.examples.BinaryLogWriter.LONG;
+import static net.goui.flogger.examples.BinaryLogWriter.NULL;
+import static net.goui.flogger.examples.BinaryLogWriter.NUMBER;
+import static net.goui.flogger.examples.BinaryLogWriter.PRINTF;
+import static net.goui.flogger.examples.BinaryLogWriter.SHORT;
+import static net.goui.flogger.examples.BinaryLogWriter.SITE;
+import static net.goui.flogger.examples.BinaryLogWriter.STRING;
+import static net.goui.flogger.examples.BinaryLogWriter.TEXT;
+import static net.goui.flogger.examples.BinaryLogWriter.TRUE;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.LogSites;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parser.DefaultBraceStyleMessageParser;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+/**
+ * Renders binary log segments written via {@link BinaryLogBackendFactory} as text.
+ *
+ * <p>Each event is formatted by a {@link MessagePattern}, using the same Flogger Next message
+ * formatter options as at runtime, given as system properties (e.g. {@code
+ * -Dflogger.message_formatter.pattern=...}). Since there is no underlying logging system to add
+ * them, the default pattern adds the timestamp, level and location to Flogger's default output
+ * (see {@link #DEFAULT_PATTERN}). If a cause was logged, its stack trace follows on subsequent
+ * lines.
+ *
+ * <p>Metadata is recorded by label, so keys named in the options (for {@code %{key.<name>}}
+ * tokens or {@code metadata.ignore}) are matched to decoded values by their label.
+ *
+ * <pre>{@code
+ * java -cp ... net.goui.flogger.examples.BinaryLogDecoder <segment file or directory>...
+ * }</pre>
+ */
+public final class BinaryLogDecoder {
+  public static final String DEFAULT_PATTERN =
+      "%{timestamp} %{level} [%{location}] " + MessagePattern.DEFAULT_PATTERN;
+
+  private static final String OPTION_PREFIX = "flogger.message_formatter.";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("usage: BinaryLogDecoder <segment file or directory>...");
+      System.exit(1);
+    }
+    Map<String, String> options = new HashMap<>();
+    System.getProperties()
+        .stringPropertyNames()
+        .forEach(
+            name -> {
+              if (name.startsWith(OPTION_PREFIX)) {
+                options.put(name.substring(OPTION_PREFIX.length()), System.getProperty(name));
+              }
+            });
+    MessagePattern pattern = patternFromOptions(options);
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+    Consumer<String> printer =
+        line -> {
+          try {
+            out.append(line).append('\n');
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        };
+    for (String arg : args) {
+      Path path = Path.of(arg);
+      if (Files.isDirectory(path)) {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(path)) {
+          segments =
+              files
+                  .filter(f -> f.getFileName().toString().endsWith(BinaryLogWriter.FILE_EXTENSION))
+                  .sorted()
+                  .toList();
+        }
+        for (Path segment : segments) {
+          decode(segment, pattern, printer);
+        }
+      } else {
+        decode(path, pattern, printer);
+      }
+    }
+    out.flush();
+  }
+
+  /** Returns the pattern for the given message formatter options (using the default pattern). */
+  static MessagePattern patternFromOptions(Map<String, String> options) {
+    if (options.containsKey("pattern")) {
+      return MessagePattern.fromOptions(options);
+    }
+    Map<String, String> withPattern = new HashMap<>(options);
+    withPattern.put("pattern", DEFAULT_PATTERN);
+    return MessagePattern.fromOptions(withPattern);
+  }
+
+  /** Decodes a single segment file, passing each rendered event to the given consumer. */
+  static void decode(Path segment, MessagePattern pattern, Consumer<String> out)
+      throws IOException {
+    ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(segment)) {
+      in = channel.map(READ_ONLY, 0, channel.size());
+    }
+    if (in.remaining() < 5 || in.getInt() != BinaryLogWriter.MAGIC) {
+      throw new IOException("not a binary log segment: " + segment);
+    }
+    byte version = in.get();
+    if (version < 1 || version > BinaryLogWriter.VERSION) {
+      throw new IOException("unsupported binary log version: " + segment);
+    }
+    new SegmentDecoder(in.order(ByteOrder.LITTLE_ENDIAN), pattern).decodeTo(out);
+  }
+
+  private static final class SegmentDecoder {
+    private final ByteBuffer in;
+    private final MessagePattern pattern;
+    private final MessagePattern.Emitter emitter;
+    private final Map<String, MetadataKey<Object>> keys = new HashMap<>();
+    private final List<LogSite> sites = new ArrayList<>();
+    private final List<String> strings = new ArrayList<>();
+    private long timestampNanos = 0;
+
+    SegmentDecoder(ByteBuffer in, MessagePattern pattern) {
+      this.in = in;
+      this.pattern = pattern;
+      this.emitter = pattern.newEmitter();
+    }
+
+    void decodeTo(Consumer<String> out) throws IOException {
+      while (in.hasRemaining()) {
+        byte type = in.get();
+        switch (type) {
+          case END -> {
+            return;
+          }
+          case SITE -> {
+            String className = readText();
+            String methodName = readText();
+            int lineNumber = readVarint();
+            String fileName = readText();
+            sites.add(
+                LogSites.logSiteFrom(
+                    new StackTraceElement(
+                        className, methodName, fileName.isEmpty() ? null : fileName, lineNumber)));
+          }
+          case STRING -> strings.add(readText());
+          case EVENT -> out.accept(readEvent());
+          default -> throw corrupt("record type", type);
+        }
+      }
+    }
+
+    private String readEvent() throws IOException {
+      timestampNanos += unzigzag(readVarlong());
+      Level level = Level.parse(Integer.toString(unzigzag(readVarint())));
+      int flags = in.get();
+      String loggerName = readStringRef();
+      int siteId = readVarint();
+      LogSite logSite = siteId > 0 ? sites.get(siteId - 1) : LogSite.INVALID;
+      byte kind = in.get();
+      String message = readStringRef();
+      Object[] args = new Object[readVarint()];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = readValue();
+      }
+      DecodedMetadata metadata = new DecodedMetadata();
+      while (in.get() != 0) {
+        metadata.add(getKey(readStringRef()), readValue());
+      }
+      TemplateContext template =
+          switch (kind) {
+            case LITERAL -> null;
+            case PRINTF -> new TemplateContext(DefaultPrintfMessageParser.getInstance(), message);
+            case BRACE ->
+                new TemplateContext(DefaultBraceStyleMessageParser.getInstance(), message);
+            default -> throw corrupt("message kind", kind);
+          };
+      DecodedLogData data =
+          new DecodedLogData(
+              level,
+              timestampNanos,
+              loggerName,
+              logSite,
+              metadata,
+              (flags & FORCED) != 0,
+              template,
+              template != null ? args : message);
+
+      StringBuilder out =
+          emitter.appendTo(
+              data,
+              MetadataProcessor.forScopeAndLogSite(Metadata.empty(), metadata),
+              new StringBuilder());
+      if ((flags & HAS_CAUSE) != 0) {
+        out.append('\n').append(readText().stripTrailing());
+      }
+      return out.toString();
+    }
+
+    @SuppressWarnings("unchecked") // Decoded values are only ever emitted by the key.
+    private MetadataKey<Object> getKey(String label) {
+      // Keys named in the options are used as is, and others are repeated so that all values
+      // emitted with the same label are kept (in order).
+      return keys.computeIfAbsent(
+          label,
+          l -> {
+            MetadataKey<?> key = pattern.keyForLabel(l);
+            return key != null ? (MetadataKey<Object>) key : MetadataKey.repeated(l, Object.class);
+          });
+    }
+
+    private Object readValue() throws IOException {
+      byte type = in.get();
+      return switch (type) {
+        case NULL -> null;
+        case FALSE -> false;
+        case TRUE -> true;
+        case INT -> unzigzag(readVarint());
+        case LONG -> unzigzag(readVarlong());
+        case DOUBLE -> in.getDouble();
+        case FLOAT -> in.getFloat();
+        case CHAR -> (char) readVarint();
+        case BYTE -> in.get();
+        case SHORT -> (short) unzigzag(readVarint());
+        case TEXT -> readText();
+        case NUMBER -> parseNumber(readText());
+        default -> throw corrupt("value type", type);
+      };
+    }
+
+    // Integral values (e.g. BigInteger or AtomicLong) are decoded as BigInteger, and others as
+    // BigDecimal if that has the same representation, so they can still be formatted by numeric
+    // directives. Anything else is decoded as its original text.
+    private static Object parseNumber(String text) {
+      try {
+        return new BigInteger(text);
+      } catch (NumberFormatException e) {
+        // Not integral.
+      }
+      try {
+        BigDecimal value = new BigDecimal(text);
+        if (value.toString().equals(text)) {
+          return value;
+        }
+      } catch (NumberFormatException e) {
+        // Not a decimal (e.g. "NaN" or a custom representation).
+      }
+      return text;
+    }
+
+    private String readStringRef() {
+      int id = readVarint();
+      return id > 0 ? strings.get(id - 1) : readText();
+    }
+
+    private String readText() {
+      byte[] utf8 = new byte[readVarint()];
+      in.get(utf8);
+      return new String(utf8, UTF_8);
+    }
+
+    private int readVarint() {
+      return (int) readVarlong();
+    }
+
+    private long readVarlong() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = in.get();
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    private static IOException corrupt(String field, byte value) {
+      return new IOException("corrupt binary log segment (" + field + "=" + value + ")");
+    }
+
+    private static int unzigzag(int n) {
+      return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static long unzigzag(long n) {
+      return (n >>> 1) ^ -(n & 1);
+    }
+  }
+
+  /** Metadata for a decoded event (all keys are repeated). */
+  private static final class DecodedMetadata extends Metadata {
+    private final List<MetadataKey<?>> keys = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    void add(MetadataKey<?> key, Object value) {
+      keys.add(key);
+      values.add(value);
+    }
+
+    @Override
+    public int size() {
+      return keys.size();
+    }
+
+    @Override
+    public MetadataKey<?> getKey(int n) {
+      return keys.get(n);
+    }
+
+    @Override
+    public Object getValue(int n) {
+      return values.get(n);
+    }
+
+    @Override
+    public <T> T findValue(MetadataKey<T> key) {
+      int index = keys.indexOf(key);
+      return index >= 0 ? key.cast(values.get(index)) : null;
+    }
+  }
+
+  /** Log data for a decoded event, with enough information to be formatted. */
+  private record DecodedLogData(
+      Level level,
+      long timestampNanos,
+      String loggerName,
+      LogSite logSite,
+      Metadata metadata,
+      boolean wasForced,
+      TemplateContext templateContext,
+      Object argumentsOrLiteral)
+      implements LogData {
+    @Override
+    public Level getLevel() {
+      return level;
+    }
+
+    @Override
+    @Deprecated
+    public long getTimestampMicros() {
+      return timestampNanos / 1000;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+      return timestampNanos;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return loggerName;
+    }
+
+    @Override
+    public LogSite getLogSite() {
+      return logSite;
+    }
+
+    @Override
+    public Metadata getMetadata() {
+      return metadata;
+    }
+
+    @Override
+    public TemplateContext getTemplateContext() {
+      return templateContext;
+    }
+
+    @Override
+    public Object[] getArguments() {
+      if (templateContext == null) {
+        throw new IllegalStateException("cannot get arguments for a literal message");
+      }
+      return (Object[]) argumentsOrLiteral;
+    }
+
+    @Override
+    public Object getLiteralArgument() {
+      if (templateContext != null) {
+        throw new IllegalStateException("cannot get literal argument for a formatted message");
+      }
+      return argumentsOrLiteral;
+    }
+  }
+
+  private BinaryLogDecoder() {}
+}
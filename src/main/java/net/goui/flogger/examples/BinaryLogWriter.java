@@ -0,0 +1,462 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.MessageUtils;
+import com.google.common.flogger.backend.MetadataHandler;
+import com.google.common.flogger.backend.MetadataKeyValueHandlers;
+import com.google.common.flogger.backend.MetadataProcessor;
+import com.google.common.flogger.backend.Platform;
+import com.google.common.flogger.backend.SimpleMessageFormatter;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parser.DefaultBraceStyleMessageParser;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import com.google.common.flogger.parser.MessageParser;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes log events as compact binary records into a rotating sequence of memory-mapped segment
+ * files, to be rendered as text later by {@link BinaryLogDecoder}.
+ *
+ * <p>Log sites and strings (format strings, logger names and metadata labels) are defined the first
+ * time they appear in a segment and referenced by id after that, so each segment can be decoded on
+ * its own. Arguments and metadata values of primitive types are written in binary, so for a
+ * typical log statement no text formatting happens at log time.
+ *
+ * <h2>Segment format</h2>
+ *
+ * <pre>{@code
+ * segment := MAGIC:int VERSION:byte record* END:byte (the unused tail of a segment is all END)
+ * record  := SITE class:str method:str line:varint file:str  (ids are assigned in order from 1)
+ *          | STRING value:str                                (ids are assigned in order from 1)
+ *          | EVENT timestamp-delta:zigzag level:zigzag flags:byte logger:ref site:varint
+ *                  message-kind:byte message:ref arg-count:varint value*
+ *                  (1 label:ref value)* 0 [cause:str]
+ * ref     := 0 str | id:varint
+ * value   := type:byte (primitive encoding | str)
+ * str     := utf8-length:varint utf8-bytes
+ * }</pre>
+ *
+ * <p>Non-primitive argument and metadata values are written using their string representation.
+ * Other {@link Number} types (e.g. {@code BigInteger}) are marked as numbers and decoded as {@code
+ * BigInteger} or {@code BigDecimal}, so they can still be formatted by numeric directives (e.g.
+ * {@code %d}). Other values format identically for {@code %s} style directives and metadata, but
+ * not for directives which require a specific type (e.g. {@code %tc} with a {@code Date}).
+ */
+final class BinaryLogWriter implements Closeable {
+  static final int MAGIC = 0x464C4F47; // "FLOG"
+  static final byte VERSION = 2;
+  static final String FILE_EXTENSION = ".flog";
+
+  // Record types.
+  static final byte END = 0;
+  static final byte SITE = 1;
+  static final byte STRING = 2;
+  static final byte EVENT = 3;
+
+  // Event flags.
+  static final int FORCED = 0x1;
+  static final int HAS_CAUSE = 0x2;
+
+  // Message kinds (literal messages are also used for text formatted at log time).
+  static final byte LITERAL = 0;
+  static final byte PRINTF = 1;
+  static final byte BRACE = 2;
+
+  // Value types.
+  static final byte NULL = 0;
+  static final byte FALSE = 1;
+  static final byte TRUE = 2;
+  static final byte INT = 3;
+  static final byte LONG = 4;
+  static final byte DOUBLE = 5;
+  static final byte FLOAT = 6;
+  static final byte CHAR = 7;
+  static final byte BYTE = 8;
+  static final byte SHORT = 9;
+  static final byte TEXT = 10;
+  // Since version 2.
+  static final byte NUMBER = 11;
+
+  // Limits per-segment state for dynamic strings (e.g. literal messages built at runtime). Once
+  // this many strings are defined, new strings are written inline.
+  private static final int MAX_DICTIONARY_SIZE = 4096;
+  // The same keys as are ignored by Flogger's default message formatter.
+  private static final MetadataHandler<MetadataKey.KeyValueHandler> METADATA_HANDLER =
+      MetadataKeyValueHandlers.getDefaultHandler(ImmutableSet.of(LogContext.Key.LOG_CAUSE));
+
+  private final Path directory;
+  private final String filePrefix;
+  private final int segmentSize;
+  private final int maxSegments;
+
+  // All mutable state is guarded by "this".
+  private final Map<LogSite, Integer> siteIds = new HashMap<>();
+  private final Map<String, Integer> stringIds = new HashMap<>();
+  // Entries added to the maps above for the current event, which are removed if the event (and
+  // with it their definitions) is not written.
+  private final List<LogSite> newSites = new ArrayList<>();
+  private final List<String> newStrings = new ArrayList<>();
+  private final Buffer definitions = new Buffer();
+  private final Buffer event = new Buffer();
+  private final MetadataEncoder metadataEncoder = new MetadataEncoder();
+  private MappedByteBuffer segment = null;
+  private int segmentCount = 0;
+  private long lastTimestampNanos = 0;
+
+  /**
+   * Creates a writer for segments named {@code <prefix>-<n>.flog} in the given directory (which is
+   * created if needed). Once {@code maxSegments} segments exist, the oldest is deleted each time a
+   * new segment is started.
+   */
+  BinaryLogWriter(Path directory, String filePrefix, int segmentSize, int maxSegments)
+      throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.filePrefix = filePrefix;
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+  }
+
+  /** Writes a single log event, starting a new segment if the current one is full. */
+  synchronized void write(LogData data) throws IOException {
+    newSites.clear();
+    newStrings.clear();
+    boolean written = false;
+    try {
+      if (segment == null) {
+        startSegment();
+      }
+      encode(data);
+      if (definitions.size + event.size > segment.remaining()) {
+        // Dictionaries are per-segment, so the event must be re-encoded for the new segment.
+        startSegment();
+        encode(data);
+        if (definitions.size + event.size > segment.remaining()) {
+          throw new IllegalArgumentException(
+              "log event too large for segment: " + (definitions.size + event.size) + " bytes");
+        }
+      }
+      segment.put(definitions.bytes, 0, definitions.size).put(event.bytes, 0, event.size);
+      lastTimestampNanos = data.getTimestampNanos();
+      written = true;
+    } finally {
+      if (!written) {
+        // Ids are assigned in order, so removing the newest entries leaves the maps consistent.
+        siteIds.keySet().removeAll(newSites);
+        stringIds.keySet().removeAll(newStrings);
+      }
+    }
+  }
+
+  /** Flushes the current segment to disk (any events written after this start a new segment). */
+  @Override
+  public synchronized void close() {
+    if (segment != null) {
+      segment.force();
+      segment = null;
+    }
+  }
+
+  private void startSegment() throws IOException {
+    if (segment != null) {
+      segment.force();
+    }
+    segmentCount++;
+    Path file = segmentPath(segmentCount);
+    FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE);
+    try (channel) {
+      // The mapping remains valid after the channel is closed.
+      segment = channel.map(READ_WRITE, 0, segmentSize);
+    } catch (IOException e) {
+      // Don't leave the new (empty) file behind, since it is not a valid segment.
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    segment.putInt(MAGIC).put(VERSION);
+    siteIds.clear();
+    stringIds.clear();
+    newSites.clear();
+    newStrings.clear();
+    lastTimestampNanos = 0;
+    if (segmentCount > maxSegments) {
+      Files.deleteIfExists(segmentPath(segmentCount - maxSegments));
+    }
+  }
+
+  private Path segmentPath(int index) {
+    return directory.resolve(String.format("%s-%05d%s", filePrefix, index, FILE_EXTENSION));
+  }
+
+  private void encode(LogData data) {
+    definitions.size = 0;
+    event.size = 0;
+    Throwable cause = data.getMetadata().findValue(LogContext.Key.LOG_CAUSE);
+    event.putByte(EVENT);
+    event.putVarlong(zigzag(data.getTimestampNanos() - lastTimestampNanos));
+    event.putVarint(zigzag(data.getLevel().intValue()));
+    event.putByte((data.wasForced() ? FORCED : 0) | (cause != null ? HAS_CAUSE : 0));
+    putStringRef(data.getLoggerName());
+    event.putVarint(getSiteId(data.getLogSite()));
+
+    TemplateContext template = data.getTemplateContext();
+    if (template == null) {
+      event.putByte(LITERAL);
+      putStringRef(SimpleMessageFormatter.getLiteralLogMessage(data));
+      event.putVarint(0);
+    } else {
+      byte kind = getMessageKind(template.getParser());
+      if (kind != LITERAL) {
+        event.putByte(kind);
+        putStringRef(template.getMessage());
+        Object[] args = data.getArguments();
+        event.putVarint(args.length);
+        for (Object arg : args) {
+          putValue(arg);
+        }
+      } else {
+        // Unknown parsers cannot be recreated by the decoder, so format the message now.
+        event.putByte(LITERAL);
+        event.putVarint(0);
+        event.putText(BaseMessageFormatter.appendFormattedMessage(data, new StringBuilder()));
+        event.putVarint(0);
+      }
+    }
+
+    MetadataProcessor metadata =
+        MetadataProcessor.forScopeAndLogSite(Platform.getInjectedMetadata(), data.getMetadata());
+    metadata.process(METADATA_HANDLER, metadataEncoder);
+    event.putByte(0);
+    if (cause != null) {
+      event.putText(Throwables.getStackTraceAsString(cause));
+    }
+  }
+
+  private static byte getMessageKind(MessageParser parser) {
+    if (parser == DefaultPrintfMessageParser.getInstance()) {
+      return PRINTF;
+    }
+    if (parser == DefaultBraceStyleMessageParser.getInstance()) {
+      return BRACE;
+    }
+    return LITERAL;
+  }
+
+  private int getSiteId(LogSite site) {
+    if (site == LogSite.INVALID) {
+      return 0;
+    }
+    Integer id = siteIds.get(site);
+    if (id == null) {
+      if (siteIds.size() >= MAX_DICTIONARY_SIZE) {
+        return 0;
+      }
+      id = siteIds.size() + 1;
+      siteIds.put(site, id);
+      newSites.add(site);
+      definitions.putByte(SITE);
+      definitions.putText(site.getClassName());
+      definitions.putText(site.getMethodName());
+      definitions.putVarint(Math.max(site.getLineNumber(), 0));
+      definitions.putText(site.getFileName() != null ? site.getFileName() : "");
+    }
+    return id;
+  }
+
+  private void putStringRef(String value) {
+    Integer id = stringIds.get(value);
+    if (id == null) {
+      if (stringIds.size() >= MAX_DICTIONARY_SIZE) {
+        event.putVarint(0);
+        event.putText(value);
+        return;
+      }
+      id = stringIds.size() + 1;
+      stringIds.put(value, id);
+      newStrings.add(value);
+      definitions.putByte(STRING);
+      definitions.putText(value);
+    }
+    event.putVarint(id);
+  }
+
+  private void putValue(Object value) {
+    if (value == null) {
+      event.putByte(NULL);
+    } else if (value instanceof CharSequence text) {
+      event.putByte(TEXT);
+      event.putText(text);
+    } else if (value instanceof Integer n) {
+      event.putByte(INT);
+      event.putVarint(zigzag(n));
+    } else if (value instanceof Long n) {
+      event.putByte(LONG);
+      event.putVarlong(zigzag(n));
+    } else if (value instanceof Double n) {
+      event.putByte(DOUBLE);
+      event.putFixed(Double.doubleToRawLongBits(n), 8);
+    } else if (value instanceof Float n) {
+      event.putByte(FLOAT);
+      event.putFixed(Float.floatToRawIntBits(n), 4);
+    } else if (value instanceof Boolean b) {
+      event.putByte(b ? TRUE : FALSE);
+    } else if (value instanceof Character c) {
+      event.putByte(CHAR);
+      event.putVarint(c);
+    } else if (value instanceof Byte n) {
+      event.putByte(BYTE);
+      event.putByte(n);
+    } else if (value instanceof Short n) {
+      event.putByte(SHORT);
+      event.putVarint(zigzag(n));
+    } else if (value instanceof Number n) {
+      event.putByte(NUMBER);
+      event.putText(MessageUtils.safeToString(n));
+    } else {
+      event.putByte(TEXT);
+      event.putText(MessageUtils.safeToString(value));
+    }
+  }
+
+  private static int zigzag(int n) {
+    return (n << 1) ^ (n >> 31);
+  }
+
+  private static long zigzag(long n) {
+    return (n << 1) ^ (n >> 63);
+  }
+
+  /** Encodes metadata key/value pairs as they are emitted (after any custom key formatting). */
+  private final class MetadataEncoder implements CharSequenceKeyValueHandler {
+    @Override
+    public void handle(String label, Object value) {
+      event.putByte(1);
+      putStringRef(label);
+      putValue(value);
+    }
+
+    @Override
+    public void handleTransient(String label, CharSequence value) {
+      event.putByte(1);
+      putStringRef(label);
+      event.putByte(TEXT);
+      event.putText(value);
+    }
+  }
+
+  /** A reusable, growable byte buffer into which records are encoded before being written. */
+  private static final class Buffer {
+    private byte[] bytes = new byte[256];
+    private int size = 0;
+
+    private void ensureCapacity(int extra) {
+      if (size + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + extra));
+      }
+    }
+
+    void putByte(int b) {
+      ensureCapacity(1);
+      bytes[size++] = (byte) b;
+    }
+
+    void putVarint(int n) {
+      putVarlong(n & 0xFFFFFFFFL);
+    }
+
+    void putVarlong(long n) {
+      ensureCapacity(10);
+      while ((n & ~0x7FL) != 0) {
+        bytes[size++] = (byte) ((n & 0x7F) | 0x80);
+        n >>>= 7;
+      }
+      bytes[size++] = (byte) n;
+    }
+
+    void putFixed(long n, int byteCount) {
+      ensureCapacity(byteCount);
+      for (int i = 0; i < byteCount; i++, n >>>= 8) {
+        bytes[size++] = (byte) n;
+      }
+    }
+
+    /** Writes UTF-8 text without allocating (unpaired surrogates are written as '?'). */
+    void putText(CharSequence text) {
+      int length = text.length();
+      int utf8Length = 0;
+      for (int i = 0; i < length; i++) {
+        char c = text.charAt(i);
+        if (c < 0x80) {
+          utf8Length += 1;
+        } else if (c < 0x800) {
+          utf8Length += 2;
+        } else if (!Character.isSurrogate(c)) {
+          utf8Length += 3;
+        } else if (isSurrogatePair(text, i)) {
+          utf8Length += 4;
+          i++;
+        } else {
+          utf8Length += 1;
+        }
+      }
+      putVarint(utf8Length);
+      ensureCapacity(utf8Length);
+      for (int i = 0; i < length; i++) {
+        char c = text.charAt(i);
+        if (c < 0x80) {
+          bytes[size++] = (byte) c;
+        } else if (c < 0x800) {
+          bytes[size++] = (byte) (0xC0 | (c >> 6));
+          bytes[size++] = (byte) (0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+          bytes[size++] = (byte) (0xE0 | (c >> 12));
+          bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          bytes[size++] = (byte) (0x80 | (c & 0x3F));
+        } else if (isSurrogatePair(text, i)) {
+          int cp = Character.toCodePoint(c, text.charAt(++i));
+          bytes[size++] = (byte) (0xF0 | (cp >> 18));
+          bytes[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+          bytes[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+          bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+          bytes[size++] = '?';
+        }
+      }
+    }
+
+    private static boolean isSurrogatePair(CharSequence text, int i) {
+      return Character.isHighSurrogate(text.charAt(i))
+          && i + 1 < text.length()
+          && Character.isLowSurrogate(text.charAt(i + 1));
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.flogger.LogPerBucketingStrategy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bucketing strategy for {@code per(key, strategy)} which allows high cardinality keys (e.g.
+ * tenant IDs or error codes) while bounding the amount of stateful logging data kept for each log
+ * site.
+ *
+ * <p>Flogger keeps rate limiting state for every distinct bucket used at a log site, so using
+ * {@code per(tenantId)} directly means this state grows without limit. This strategy maps keys
+ * onto at most {@code maxKeys} reusable bucket slots. When all slots are in use, the least recently
+ * used key is evicted, and its slot is reused for the new key.
+ *
+ * <pre>{@code
+ * private static final BoundedBucketingStrategy<String> TENANTS =
+ *     BoundedBucketingStrategy.create("tenant", 1000);
+ * ...
+ * logger.atWarning().atMostEvery(1, MINUTES).per(tenantId, TENANTS).log("Quota exceeded");
+ * }</pre>
+ *
+ * <p>Since slots are reused, a newly seen key takes over the rate limiting state of the key it
+ * evicted. With a sensible maximum, this only affects keys which are rarely used. A strategy can
+ * be shared between log sites, but they then share the same set of tracked keys.
+ *
+ * <p>Slots are split into independently locked stripes by key hash, so threads logging different
+ * keys rarely contend with each other.
+ */
+public final class BoundedBucketingStrategy<T> extends LogPerBucketingStrategy<T> {
+  /**
+   * Returns a strategy which tracks at most {@code maxKeys} distinct keys (approximately, since
+   * the limit applies per stripe).
+   */
+  public static <T> BoundedBucketingStrategy<T> create(String name, int maxKeys) {
+    int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    // Keep at least 16 keys per stripe so that LRU ordering is meaningful.
+    while (stripeCount > 1 && maxKeys / stripeCount < 16) {
+      stripeCount >>= 1;
+    }
+    return new BoundedBucketingStrategy<>(name, maxKeys, stripeCount);
+  }
+
+  /** The bucket used for a key. Emitted as the "group_by" metadata value of log statements. */
+  private static final class Slot {
+    // Volatile since this can be read (when formatting) without holding the stripe lock.
+    private volatile Object key;
+
+    Slot(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(key);
+    }
+  }
+
+  /** An LRU map from keys to slots, which reuses the eldest slot when full. */
+  private static final class Stripe extends LinkedHashMap<Object, Slot> {
+    private final int maxSize;
+    private final LongAdder evictedKeyCount;
+    private Slot evicted = null;
+
+    Stripe(int maxSize, LongAdder evictedKeyCount) {
+      super(16, 0.75f, /* accessOrder= */ true);
+      this.maxSize = maxSize;
+      this.evictedKeyCount = evictedKeyCount;
+    }
+
+    synchronized Slot getSlot(Object key) {
+      Slot slot = get(key);
+      if (slot == null) {
+        // Adding the new key may evict the eldest entry, but we must add something to the map
+        // before we know. Add a new slot, and if something was evicted, use its slot instead.
+        slot = new Slot(key);
+        put(key, slot);
+        if (evicted != null) {
+          slot = evicted;
+          slot.key = key;
+          put(key, slot);
+          evicted = null;
+        }
+      }
+      return slot;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Slot> eldest) {
+      if (size() <= maxSize) {
+        return false;
+      }
+      evicted = eldest.getValue();
+      evictedKeyCount.increment();
+      return true;
+    }
+  }
+
+  private final Stripe[] stripes;
+  private final LongAdder evictedKeyCount = new LongAdder();
+
+  BoundedBucketingStrategy(String name, int maxKeys, int stripeCount) {
+    super(name);
+    checkArgument(maxKeys > 0, "maximum key count must be positive: %s", maxKeys);
+    checkArgument(Integer.bitCount(stripeCount) == 1, "stripe count must be a power of 2");
+    int keysPerStripe = Math.max(1, maxKeys / stripeCount);
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe(keysPerStripe, evictedKeyCount);
+    }
+  }
+
+  @Override
+  protected Object apply(T key) {
+    int hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)].getSlot(key);
+  }
+
+  /** Returns the number of keys evicted so far (a measure of whether the maximum is too low). */
+  public long getEvictedKeyCount() {
+    return evictedKeyCount.sum();
+  }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static java.lang.StackWalker.Option.RETAIN_CLASS_REFERENCE;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.LogSites;
+import com.google.common.flogger.LoggingApi;
+import java.lang.StackWalker.StackFrame;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avoids repeatedly resolving the log site of an enabled log statement.
+ *
+ * <p>For every enabled log statement, Flogger walks the stack to find the caller's frame, creates
+ * a stack trace element for it, and then creates a new log site from that (which is then used as
+ * the key for rate limiting and aggregation state). The stack walk is by far the most expensive
+ * part of this, and cannot be avoided without knowing the log site in advance.
+ *
+ * <p>{@link #withLogSite(LoggingApi, LazyLogSite)} uses a per-statement constant, which is resolved
+ * from the stack the first time the statement is enabled. After that, no stack walk happens at
+ * all, so the cost of an enabled statement is dominated by formatting and output.
+ *
+ * <pre>{@code
+ * private static final LazyLogSite TASK_DONE = lazyLogSite();
+ * ...
+ * withLogSite(logger.atInfo(), TASK_DONE).log("Task done: %s", task);
+ * }</pre>
+ *
+ * <p>Log sites are created by Flogger itself (via {@link LogSites#logSiteFrom(StackTraceElement)}),
+ * so they are equal to the ones Flogger would have determined, including the class and method name
+ * used to match log entries in tests (e.g. {@code fromSameMethodAs(entry)}). Disabled log
+ * statements return immediately, without visiting the stack at all.
+ */
+public final class CachedLogSites {
+  private static final StackWalker walker = StackWalker.getInstance(RETAIN_CLASS_REFERENCE);
+
+  // Log sites for each class, keyed by method and bytecode index. Holding the log sites via the
+  // class means they are not retained after the class is unloaded.
+  private static final ClassValue<Map<FrameKey, LogSite>> logSites =
+      new ClassValue<>() {
+        @Override
+        protected Map<FrameKey, LogSite> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  /** The identity of a stack frame within its class (methods can be overloaded). */
+  private record FrameKey(String methodName, String descriptor, int bytecodeIndex) {}
+
+  /**
+   * The log site of a single log statement, resolved when the statement is first enabled. Each
+   * instance must only be used by one log statement, since the statement which resolves it
+   * determines the log site for all of them.
+   */
+  public static final class LazyLogSite {
+    private volatile LogSite logSite = null;
+
+    private LazyLogSite() {}
+  }
+
+  /** Returns a new, unresolved log site, to be held in a constant for a single log statement. */
+  public static LazyLogSite lazyLogSite() {
+    return new LazyLogSite();
+  }
+
+  /**
+   * Injects the given log site into the given API, if it is enabled, resolving it from the calling
+   * code if this is the first time it has been used. This must be called directly from the log
+   * statement, as the first call after the level selector.
+   */
+  public static <API extends LoggingApi<API>> API withLogSite(API api, LazyLogSite site) {
+    if (!api.isEnabled()) {
+      return api;
+    }
+    LogSite logSite = site.logSite;
+    if (logSite == null) {
+      // Racing threads may both resolve the log site, but they are equal.
+      logSite = callerLogSite(1);
+      site.logSite = logSite;
+    }
+    return api.withInjectedLogSite(logSite);
+  }
+
+  /**
+   * Returns the cached log site of the calling code, skipping the given number of additional stack
+   * frames (for helper methods which are themselves called directly from log statements).
+   */
+  static LogSite callerLogSite(int skipFrames) {
+    // The first frame is always this method.
+    StackFrame caller = walker.walk(s -> s.skip(1 + skipFrames).findFirst().orElseThrow());
+    Map<FrameKey, LogSite> sites = logSites.get(caller.getDeclaringClass());
+    FrameKey key =
+        new FrameKey(caller.getMethodName(), caller.getDescriptor(), caller.getByteCodeIndex());
+    return sites.computeIfAbsent(key, k -> LogSites.logSiteFrom(caller.toStackTraceElement()));
+  }
+
+  private CachedLogSites() {}
+}
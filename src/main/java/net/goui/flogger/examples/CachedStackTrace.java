@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static java.lang.StackWalker.Option.RETAIN_CLASS_REFERENCE;
+import static java.lang.StackWalker.Option.SHOW_REFLECT_FRAMES;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.LoggingApi;
+import com.google.common.flogger.StackSize;
+import java.lang.StackWalker.StackFrame;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cheaper alternative to {@code withStackTrace(size)} for log statements on frequently used code
+ * paths, which captures only the requested number of stack frames and shares one trace between all
+ * calls with the same call path.
+ *
+ * <p>Flogger's {@code withStackTrace()} fills in the complete stack of a new throwable and then
+ * trims it, for every log statement. This class uses {@link StackWalker} to visit only the
+ * requested frames, and only creates stack trace elements the first time a call path is seen.
+ * Since the first frame is the log statement itself, the cached trace is unique for each log site
+ * and caller chain. Disabled log statements return immediately, without visiting the stack at all.
+ *
+ * <pre>{@code
+ * capture(logger.atInfo(), SMALL).log("Logging with caller context!");
+ * }</pre>
+ *
+ * <p>Unlike {@code withStackTrace()}, this sets the cause of the log statement, so it cannot be
+ * combined with a different cause. The same instance is passed as the cause of every log statement
+ * with the same call path (from any thread), so instances are immutable: they have no cause,
+ * suppressed exceptions are disabled and the stack trace cannot be changed after creation.
+ */
+public final class CachedStackTrace extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  private static final int MAX_CACHE_SIZE = 1024;
+
+  // Reflection frames are included to match stack traces captured via throwables.
+  private static final StackWalker walker =
+      StackWalker.getInstance(Set.of(RETAIN_CLASS_REFERENCE, SHOW_REFLECT_FRAMES));
+
+  // Keyed by the captured frames, which is cheap compared to creating stack trace elements.
+  private static final Cache<List<FrameKey>, CachedStackTrace> cache =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE).build();
+
+  /** The identity of a stack frame (the bytecode index distinguishes calls in the same method). */
+  private record FrameKey(Class<?> declaringClass, String methodName, int bytecodeIndex) {
+    static FrameKey of(StackFrame frame) {
+      return new FrameKey(
+          frame.getDeclaringClass(), frame.getMethodName(), frame.getByteCodeIndex());
+    }
+  }
+
+  /**
+   * Sets the cause of the given API, if it is enabled, to a stack trace of the calling code with at
+   * most the number of frames given by the stack size (nothing is added for {@link
+   * StackSize#NONE}). This must be called directly from the log statement, as the first call after
+   * the level selector.
+   */
+  public static <API extends LoggingApi<API>> API capture(API api, StackSize size) {
+    if (!api.isEnabled() || size == StackSize.NONE) {
+      return api;
+    }
+    return api.withCause(callerStackTrace(size, 1));
+  }
+
+  /**
+   * Returns the cached stack trace of the calling code, skipping the given number of additional
+   * stack frames (for helper methods which are themselves called directly from log statements).
+   */
+  static CachedStackTrace callerStackTrace(StackSize size, int skipFrames) {
+    long maxDepth =
+        switch (size) {
+          case SMALL -> 10;
+          case MEDIUM -> 20;
+          case LARGE -> 50;
+          case FULL -> Long.MAX_VALUE;
+          case NONE -> throw new IllegalArgumentException("cannot capture a stack of size NONE");
+        };
+    // The first frame is always this method.
+    List<StackFrame> frames = walker.walk(s -> s.skip(1 + skipFrames).limit(maxDepth).toList());
+    List<FrameKey> key = frames.stream().map(FrameKey::of).toList();
+    // Only new call paths create stack trace elements (from the frames already visited).
+    return cache
+        .asMap()
+        .computeIfAbsent(
+            key,
+            k ->
+                new CachedStackTrace(
+                    size,
+                    frames.stream()
+                        .map(StackFrame::toStackTraceElement)
+                        .toArray(StackTraceElement[]::new)));
+  }
+
+  private CachedStackTrace(StackSize size, StackTraceElement[] stackTrace) {
+    super(size.name(), null, /* enableSuppression= */ false, /* writableStackTrace= */ true);
+    super.setStackTrace(stackTrace);
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    // The stack trace is set explicitly from the captured frames.
+    return this;
+  }
+
+  @Override
+  public void setStackTrace(StackTraceElement[] stackTrace) {
+    throw new UnsupportedOperationException("cached stack traces are shared and immutable");
+  }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats log timestamps with a {@link DateTimeFormatter}, but only formats each second once. The
+ * text before and after the sub-second digits is cached, and each event appends only its own
+ * fraction of a second (without allocating).
+ *
+ * <pre>{@code
+ * CachedTimestampFormatter timestamps =
+ *     CachedTimestampFormatter.of(
+ *         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault()));
+ * timestamps.appendTo(data.getTimestampNanos(), buffer);
+ * }</pre>
+ *
+ * <p>The output is always identical to that of the given formatter. When a second is first
+ * formatted, the formatter is called with several different fractions to find where (if anywhere)
+ * the fraction digits appear. If the formatter's output is not a fixed-width fraction (e.g. for the
+ * unpadded {@code "n"} field) the formatter is called directly for every event in that second.
+ * {@link DateTimeFormatter#ISO_INSTANT}, which omits trailing groups of zeros in the fraction, is
+ * handled specially.
+ *
+ * <p>The current second is held in a single shared slot, which is replaced (without locking) when
+ * an event from a different second is formatted. This is thread safe, since each cached second is
+ * immutable.
+ */
+public final class CachedTimestampFormatter {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  // Values used to find and check the fraction digits.
+  private static final int MAX_NANOS = 999_999_999;
+  private static final int PROBE_NANOS = 123_456_789;
+  private static final String PROBE_DIGITS = "123456789";
+  // Fraction types for seconds which are not a simple fixed width fraction.
+  private static final int NOT_CACHED = -1;
+  private static final int ISO_FRACTION = -2;
+
+  /** Returns a cached formatter for the given formatter. */
+  public static CachedTimestampFormatter of(DateTimeFormatter formatter) {
+    return new CachedTimestampFormatter(formatter);
+  }
+
+  /**
+   * The formatted text of a single second, with the number of fraction digits between the prefix
+   * and suffix (or a fraction type).
+   */
+  private record Second(long epochSecond, String prefix, int fractionDigits, String suffix) {}
+
+  private final DateTimeFormatter formatter;
+  private volatile Second current = new Second(Long.MIN_VALUE, null, NOT_CACHED, null);
+
+  private CachedTimestampFormatter(DateTimeFormatter formatter) {
+    this.formatter = formatter;
+  }
+
+  /** Appends the given timestamp (in nanoseconds since the epoch) to the buffer. */
+  public StringBuilder appendTo(long timestampNanos, StringBuilder out) {
+    long epochSecond = Math.floorDiv(timestampNanos, NANOS_PER_SECOND);
+    int nanos = (int) Math.floorMod(timestampNanos, NANOS_PER_SECOND);
+    Second second = current;
+    if (second.epochSecond() != epochSecond) {
+      // Each thread uses the second it formatted itself, so if threads logging in different seconds
+      // race to replace the cached one, only the cache hit rate suffers, never the output.
+      second = formatSecond(epochSecond);
+      current = second;
+    }
+    switch (second.fractionDigits()) {
+      case NOT_CACHED -> formatter.formatTo(Instant.ofEpochSecond(epochSecond, nanos), out);
+      case ISO_FRACTION -> appendIsoFraction(nanos, out.append(second.prefix())).append('Z');
+      default ->
+          appendFraction(nanos, second.fractionDigits(), out.append(second.prefix()))
+              .append(second.suffix());
+    }
+    return out;
+  }
+
+  private Second formatSecond(long epochSecond) {
+    String zero = format(epochSecond, 0);
+    if (formatter == DateTimeFormatter.ISO_INSTANT) {
+      // Whole seconds are formatted with no fraction, but always end with 'Z'.
+      return new Second(epochSecond, zero.substring(0, zero.length() - 1), ISO_FRACTION, "Z");
+    }
+    String nines = format(epochSecond, MAX_NANOS);
+    String probe = format(epochSecond, PROBE_NANOS);
+    if (zero.length() == nines.length() && zero.length() == probe.length()) {
+      int start = 0;
+      while (start < zero.length() && zero.charAt(start) == nines.charAt(start)) {
+        start++;
+      }
+      int end = zero.length();
+      while (end > start && zero.charAt(end - 1) == nines.charAt(end - 1)) {
+        end--;
+      }
+      if (isFraction(zero, nines, probe, start, end)) {
+        return new Second(epochSecond, zero.substring(0, start), end - start, zero.substring(end));
+      }
+    }
+    return new Second(epochSecond, null, NOT_CACHED, null);
+  }
+
+  private String format(long epochSecond, int nanos) {
+    return formatter.format(Instant.ofEpochSecond(epochSecond, nanos));
+  }
+
+  // Checks that only the given region differs between the formatted strings, and that it holds
+  // the (truncated) fraction digits for each.
+  private static boolean isFraction(String zero, String nines, String probe, int start, int end) {
+    int digits = end - start;
+    if (digits > PROBE_DIGITS.length()
+        || !zero.regionMatches(0, probe, 0, start)
+        || !zero.regionMatches(end, probe, end, zero.length() - end)
+        || !probe.regionMatches(start, PROBE_DIGITS, 0, digits)) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (zero.charAt(i) != '0' || nines.charAt(i) != '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Appends the first N digits of the 9 digit fraction (which is truncated, not rounded).
+  private static StringBuilder appendFraction(int nanos, int digits, StringBuilder out) {
+    int divisor = 100_000_000;
+    for (int n = 0; n < digits; n++) {
+      out.append((char) ('0' + (nanos / divisor) % 10));
+      divisor /= 10;
+    }
+    return out;
+  }
+
+  // ISO-8601 instants have 0, 3, 6 or 9 fraction digits (the fewest needed to be exact).
+  private static StringBuilder appendIsoFraction(int nanos, StringBuilder out) {
+    if (nanos == 0) {
+      return out;
+    }
+    out.append('.');
+    if (nanos % 1_000_000 == 0) {
+      return appendFraction(nanos, 3, out);
+    } else if (nanos % 1_000 == 0) {
+      return appendFraction(nanos, 6, out);
+    }
+    return appendFraction(nanos, 9, out);
+  }
+}
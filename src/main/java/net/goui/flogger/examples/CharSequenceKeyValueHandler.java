@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.flogger.MetadataKey.KeyValueHandler;
+
+/**
+ * A metadata {@link KeyValueHandler} which can also accept transient character sequences, allowing
+ * custom metadata keys to emit text built in a reusable buffer without creating a new {@code
+ * String} for every log statement.
+ *
+ * <p>Metadata keys should test for this interface in their {@code emit()} or {@code
+ * emitRepeated()} methods, and fall back to {@link #handle(String, Object)} for other handlers (see
+ * {@link JoiningMetadataKey}).
+ */
+public interface CharSequenceKeyValueHandler extends KeyValueHandler {
+  /**
+   * Handles a text value which is only valid for the duration of this call. The value should be
+   * formatted exactly as if it were a {@code String} with the same content, and must be copied if
+   * it needs to be retained after this method returns.
+   */
+  void handleTransient(String label, CharSequence value);
+}
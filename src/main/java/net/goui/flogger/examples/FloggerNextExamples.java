@@ -11,6 +11,7 @@
 package net.goui.flogger.examples;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static net.goui.flogger.examples.TemplateLogPlan.at;
 
 import com.google.common.flogger.MetadataKey;
 import com.google.common.flogger.context.ScopedLoggingContexts;
@@ -35,6 +36,8 @@ public class FloggerNextExamples {
             %#x\{a}
             + %#x\{b}
             = %#x\{a + b}""".log();
+      // The same syntax, but with each template compiled once into a cached format string.
+      at(logger.atInfo())."With a cached template plan: %#x\{a} + %#x\{b} = %#x\{a + b}".log();
 
       // Example of suppressing a metadata key (ignore LOG_EVERY_N key, but not AT_MOST_EVERY key).
       logger.atInfo().atMostEvery(5, MINUTES).log("With emitted rate limit metadata.");
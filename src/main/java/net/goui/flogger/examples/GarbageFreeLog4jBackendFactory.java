@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.MetadataProcessor;
+import com.google.common.flogger.backend.Platform;
+import com.google.common.flogger.backend.system.BackendFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.lookup.StrLookup;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.spi.ExtendedLogger;
+
+/**
+ * A Flogger backend factory for Log4J, which formats log events directly into Log4J's reusable
+ * buffers (see {@link MessagePattern}), so that enabled log statements do not create a new message
+ * string for every event.
+ *
+ * <p>This replaces the normal Log4J backend, so must be selected explicitly at startup:
+ *
+ * <pre>{@code
+ * -Dflogger.backend_factory=net.goui.flogger.examples.GarbageFreeLog4jBackendFactory#getInstance
+ * }</pre>
+ *
+ * <p>Message formatting and backend naming are configured via properties in the Log4J
+ * configuration, using the same option names as Flogger Next (e.g. {@code
+ * flogger.message_formatter.pattern} or {@code flogger.backend_naming.retain_at_most}), so log
+ * statements use the same Log4J loggers as with Flogger Next's backend. To avoid garbage
+ * in Log4J itself, its layouts must also be garbage free (e.g. a {@code PatternLayout} using
+ * {@code %m} for the message), and thread locals must be enabled (the default outside web
+ * applications).
+ *
+ * <p>This is not garbage free end to end: Flogger creates a new log context (and any arguments)
+ * for each log statement, and this backend creates a small {@link MetadataProcessor} for each event
+ * to merge scope and log site metadata. What it avoids is the per-event message string and
+ * formatting buffers, which are usually the largest allocations.
+ */
+public final class GarbageFreeLog4jBackendFactory extends BackendFactory {
+  private static final String FORMATTER_PREFIX = "flogger.message_formatter.";
+  private static final String NAMING_PREFIX = "flogger.backend_naming.";
+  // Option names (list options also have "<name>.size" and "<name>.<n>" entries).
+  private static final ImmutableList<String> FORMATTER_OPTIONS =
+      ImmutableList.of("pattern", "timestamp.pattern", "metadata.ignore");
+  private static final ImmutableList<String> NAMING_OPTIONS =
+      ImmutableList.of(
+          "trim_at_least", "retain_at_most", "default_root_extend", "use_system_roots", "roots");
+  // Finds the names of "%{key.<name>}" tokens in a pattern, which have their own options.
+  private static final Pattern KEY_TOKEN = Pattern.compile("%\\{(key\\.[^/}]+)");
+  // Log4J uses this to find the caller's location (if the layout needs it).
+  private static final String FQCN = LogContext.class.getName();
+
+  private static final class LazyHolder {
+    private static final GarbageFreeLog4jBackendFactory INSTANCE =
+        new GarbageFreeLog4jBackendFactory();
+  }
+
+  /** Called by Flogger to obtain the backend factory. */
+  public static BackendFactory getInstance() {
+    return LazyHolder.INSTANCE;
+  }
+
+  private final MessagePattern pattern;
+  private final BackendNameResolver nameResolver;
+  private final ThreadLocal<ReusableLogMessage> message;
+
+  private GarbageFreeLog4jBackendFactory() {
+    Configuration config = LoggerContext.getContext(false).getConfiguration();
+    StrLookup properties = config.getStrSubstitutor().getVariableResolver();
+    Map<String, String> formatterOptions =
+        lookupOptions(properties, FORMATTER_PREFIX, FORMATTER_OPTIONS);
+    String patternOption = formatterOptions.get("pattern");
+    if (patternOption != null) {
+      Matcher token = KEY_TOKEN.matcher(patternOption);
+      while (token.find()) {
+        lookupOption(properties, FORMATTER_PREFIX, "metadata." + token.group(1), formatterOptions);
+      }
+    }
+    this.pattern = MessagePattern.fromOptions(formatterOptions);
+    this.nameResolver =
+        BackendNameResolver.fromOptions(
+            lookupOptions(properties, NAMING_PREFIX, NAMING_OPTIONS),
+            BackendNameResolver.log4jSystemRoots());
+    this.message = ThreadLocal.withInitial(() -> new ReusableLogMessage(pattern));
+  }
+
+  // Log4J does not expose the names of the properties in its configuration, so options must be
+  // looked up by name.
+  private static Map<String, String> lookupOptions(
+      StrLookup properties, String prefix, List<String> names) {
+    Map<String, String> options = new HashMap<>();
+    for (String name : names) {
+      lookupOption(properties, prefix, name, options);
+      String size = lookupOption(properties, prefix, name + ".size", options);
+      if (size != null) {
+        int count = Integer.parseInt(size.strip());
+        for (int n = 0; n < count; n++) {
+          lookupOption(properties, prefix, name + "." + n, options);
+        }
+      }
+    }
+    return options;
+  }
+
+  private static String lookupOption(
+      StrLookup properties, String prefix, String name, Map<String, String> options) {
+    String value = properties.lookup(prefix + name);
+    if (value != null) {
+      options.put(name, value);
+    }
+    return value;
+  }
+
+  @Override
+  public LoggerBackend create(String loggingClassName) {
+    String backendName = nameResolver.backendNameOf(loggingClassName);
+    return new Backend(LogManager.getContext(false).getLogger(backendName));
+  }
+
+  @Override
+  public String toString() {
+    return "Garbage free Log4J backend";
+  }
+
+  private static org.apache.logging.log4j.Level toLog4jLevel(Level level) {
+    int value = level.intValue();
+    if (value >= Level.SEVERE.intValue()) {
+      return org.apache.logging.log4j.Level.ERROR;
+    } else if (value >= Level.WARNING.intValue()) {
+      return org.apache.logging.log4j.Level.WARN;
+    } else if (value >= Level.INFO.intValue()) {
+      return org.apache.logging.log4j.Level.INFO;
+    } else if (value >= Level.FINE.intValue()) {
+      return org.apache.logging.log4j.Level.DEBUG;
+    }
+    return org.apache.logging.log4j.Level.TRACE;
+  }
+
+  private final class Backend extends LoggerBackend {
+    private final ExtendedLogger logger;
+
+    Backend(ExtendedLogger logger) {
+      this.logger = logger;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return logger.getName();
+    }
+
+    @Override
+    public boolean isLoggable(Level level) {
+      return logger.isEnabled(toLog4jLevel(level));
+    }
+
+    @Override
+    public void log(LogData data) {
+      MetadataProcessor metadata =
+          MetadataProcessor.forScopeAndLogSite(Platform.getInjectedMetadata(), data.getMetadata());
+      ReusableLogMessage msg = message.get();
+      if (!msg.set(data, metadata)) {
+        // Reentrant logging on this thread, so the shared message is in use.
+        msg = new ReusableLogMessage(pattern);
+        msg.set(data, metadata);
+      }
+      try {
+        Throwable cause = metadata.getSingleValue(LogContext.Key.LOG_CAUSE);
+        logger.logMessage(FQCN, toLog4jLevel(data.getLevel()), null, msg, cause);
+      } finally {
+        msg.clear();
+      }
+    }
+
+    @Override
+    public void handleError(RuntimeException error, LogData badData) {
+      logger.logMessage(
+          FQCN,
+          org.apache.logging.log4j.Level.ERROR,
+          null,
+          new SimpleMessage("Cannot format log event: " + error),
+          error);
+    }
+  }
+}
@@ -10,9 +10,12 @@
 
 package net.goui.flogger.examples;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.Context;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
@@ -25,19 +28,55 @@ import java.util.concurrent.TimeUnit;
  * An executor service wraps a delegated service to propagate the current gRPC context into the
  * generated task. For convenience, it also wraps the delegate as a {@link
  * ListeningExecutorService}.
+ *
+ * <p>Tasks submitted outside any logging context are not wrapped. To submit many tasks from the
+ * same context (e.g. when fanning out work for a request), use {@link #submitAll} to capture the
+ * context once for all tasks.
  */
 public final class GrpcPropagatingExecutorService extends AbstractExecutorService {
   public static ListeningExecutorService wrap(ExecutorService delegate) {
     return MoreExecutors.listeningDecorator(new GrpcPropagatingExecutorService(delegate));
   }
 
+  /**
+   * Submits all the given tasks to the service, propagating the current gRPC context into each
+   * task. The context is captured once for the batch, and tasks are submitted from the root
+   * context. A propagating service (such as this one) still looks up the current context for each
+   * task, but finds the root context and so does not wrap the task a second time.
+   */
+  public static <T> ImmutableList<ListenableFuture<T>> submitAll(
+      ListeningExecutorService service, Collection<? extends Callable<T>> tasks) {
+    Context context = Context.current();
+    ImmutableList.Builder<ListenableFuture<T>> futures =
+        ImmutableList.builderWithExpectedSize(tasks.size());
+    Context previous = Context.ROOT.attach();
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(service.submit(context != Context.ROOT ? context.wrap(task) : task));
+      }
+    } finally {
+      Context.ROOT.detach(previous);
+    }
+    return futures.build();
+  }
+
+  private static Runnable wrapIfNeeded(Runnable runnable) {
+    Context context = Context.current();
+    return context != Context.ROOT ? context.wrap(runnable) : runnable;
+  }
+
+  private static <V> Callable<V> wrapIfNeeded(Callable<V> callable) {
+    Context context = Context.current();
+    return context != Context.ROOT ? context.wrap(callable) : callable;
+  }
+
   private static final class GrpcPropagatingTask<V> extends FutureTask<V> {
     public GrpcPropagatingTask(Callable<V> callable) {
-      super(Context.current().wrap(callable));
+      super(wrapIfNeeded(callable));
     }
 
     public GrpcPropagatingTask(Runnable runnable, V result) {
-      super(Context.current().wrap(runnable), result);
+      super(wrapIfNeeded(runnable), result);
     }
   }
 
@@ -60,7 +99,7 @@ public final class GrpcPropagatingExecutorService extends AbstractExecutorServic
   @Override
   public void execute(Runnable command) {
     if (!(command instanceof GrpcPropagatingTask)) {
-      command = Context.current().wrap(command);
+      command = wrapIfNeeded(command);
     }
     delegate.execute(command);
   }
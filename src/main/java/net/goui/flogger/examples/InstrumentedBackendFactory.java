@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.util.Comparator.comparingLong;
+
+import com.google.common.base.Utf8;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.MessageUtils;
+import com.google.common.flogger.backend.system.BackendFactory;
+import com.google.common.flogger.backend.system.SimpleBackendFactory;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A Flogger backend factory which wraps the normal backend factory to count how often each log
+ * site is used, and exports the counts via JMX (see {@link LogStatsMXBean}) and the methods of
+ * this class.
+ *
+ * <p>Instrumentation is off unless this factory is selected explicitly at startup, so it has no
+ * effect at all on the cost of logging otherwise:
+ *
+ * <pre>{@code
+ * -Dflogger.backend_factory=net.goui.flogger.examples.InstrumentedBackendFactory#getInstance
+ * }</pre>
+ *
+ * <p>The wrapped factory is the one Flogger would otherwise have found as a service (e.g. the
+ * Log4J backend), or can be given as {@code <class>#<method>} via the {@code
+ * flogger.instrumented.backend_factory} system property.
+ *
+ * <p>When enabled, each level check costs one or two uncontended counter increments, and each
+ * emitted log statement a map lookup and a few more increments. The wrapped backends format and
+ * write log output themselves, so the number of bytes they write cannot be observed here. Setting
+ * {@code flogger.instrumented.count_bytes=true} additionally formats each emitted message an extra
+ * time to count its bytes (excluding metadata and layout), roughly doubling the cost of formatting.
+ */
+public final class InstrumentedBackendFactory extends BackendFactory implements LogStatsMXBean {
+  private static final String DELEGATE_PROPERTY = "flogger.instrumented.backend_factory";
+  private static final String COUNT_BYTES_PROPERTY = "flogger.instrumented.count_bytes";
+  private static final String OBJECT_NAME = "net.goui.flogger.examples:type=LogStats";
+
+  private static final class LazyHolder {
+    private static final InstrumentedBackendFactory INSTANCE = create();
+  }
+
+  /** Called by Flogger to obtain the backend factory. */
+  public static InstrumentedBackendFactory getInstance() {
+    return LazyHolder.INSTANCE;
+  }
+
+  private static InstrumentedBackendFactory create() {
+    InstrumentedBackendFactory factory =
+        new InstrumentedBackendFactory(loadDelegate(), Boolean.getBoolean(COUNT_BYTES_PROPERTY));
+    try {
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(factory, name);
+    } catch (JMException e) {
+      // This factory was selected explicitly to export statistics, so failing to do so is fatal.
+      throw new IllegalStateException("cannot register logging statistics MBean", e);
+    }
+    return factory;
+  }
+
+  private static BackendFactory loadDelegate() {
+    String target = System.getProperty(DELEGATE_PROPERTY);
+    if (target != null) {
+      int split = target.indexOf('#');
+      checkArgument(split > 0, "expected <class>#<method> for %s: %s", DELEGATE_PROPERTY, target);
+      try {
+        Method method =
+            Class.forName(target.substring(0, split)).getMethod(target.substring(split + 1));
+        return (BackendFactory) method.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("cannot create backend factory: " + target, e);
+      }
+    }
+    for (BackendFactory factory : ServiceLoader.load(BackendFactory.class)) {
+      if (!(factory instanceof InstrumentedBackendFactory)) {
+        return factory;
+      }
+    }
+    return SimpleBackendFactory.getInstance();
+  }
+
+  private static final class LoggerCounters {
+    private final LongAdder levelChecks = new LongAdder();
+    private final LongAdder enabledChecks = new LongAdder();
+  }
+
+  private static final class SiteCounters {
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder forced = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    void record(LogData data, boolean countBytes) {
+      emitted.increment();
+      // Flogger adds the number of skipped statements when rate limiting allows a statement.
+      Integer skipped = data.getMetadata().findValue(LogContext.Key.SKIPPED_LOG_COUNT);
+      if (skipped != null) {
+        suppressed.add(skipped);
+      }
+      if (data.wasForced()) {
+        forced.increment();
+      }
+      if (countBytes) {
+        StringBuilder message = PrintfFormatPlan.appendFormattedMessage(data, new StringBuilder());
+        bytes.add(Utf8.encodedLength(message));
+      }
+    }
+
+    LogSiteStats snapshot(LogSite logSite) {
+      StringBuilder name = new StringBuilder();
+      if (!MessageUtils.appendLogSite(logSite, name)) {
+        name.append("<unknown>");
+      }
+      return new LogSiteStats(
+          name.toString(), emitted.sum(), suppressed.sum(), forced.sum(), bytes.sum());
+    }
+  }
+
+  private final BackendFactory delegate;
+  private final boolean countBytes;
+  // Keyed by the backend's logger name, which can be shared by many classes.
+  private final Map<String, LoggerCounters> loggers = new ConcurrentHashMap<>();
+  private final Map<LogSite, SiteCounters> sites = new ConcurrentHashMap<>();
+
+  InstrumentedBackendFactory(BackendFactory delegate, boolean countBytes) {
+    this.delegate = delegate;
+    this.countBytes = countBytes;
+  }
+
+  @Override
+  public LoggerBackend create(String loggingClassName) {
+    LoggerBackend backend = delegate.create(loggingClassName);
+    return new Backend(
+        backend, loggers.computeIfAbsent(backend.getLoggerName(), k -> new LoggerCounters()));
+  }
+
+  @Override
+  public ImmutableList<LogSiteStats> getLogSiteStats() {
+    return sites.entrySet().stream()
+        .map(e -> e.getValue().snapshot(e.getKey()))
+        .sorted(comparingLong(LogSiteStats::getEnabledCount).reversed())
+        .collect(toImmutableList());
+  }
+
+  @Override
+  public ImmutableMap<String, Long> getLevelCheckCounts() {
+    return loggerCounts(c -> c.levelChecks);
+  }
+
+  @Override
+  public ImmutableMap<String, Long> getEnabledCheckCounts() {
+    return loggerCounts(c -> c.enabledChecks);
+  }
+
+  private ImmutableMap<String, Long> loggerCounts(Function<LoggerCounters, LongAdder> counter) {
+    return loggers.entrySet().stream()
+        .collect(toImmutableMap(Map.Entry::getKey, e -> counter.apply(e.getValue()).sum()));
+  }
+
+  @Override
+  public void reset() {
+    // Counts recorded concurrently with this may or may not be reset.
+    sites.clear();
+    for (LoggerCounters counters : loggers.values()) {
+      counters.levelChecks.reset();
+      counters.enabledChecks.reset();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Instrumented backend (" + delegate + ")";
+  }
+
+  private final class Backend extends LoggerBackend {
+    private final LoggerBackend delegate;
+    private final LoggerCounters counters;
+
+    Backend(LoggerBackend delegate, LoggerCounters counters) {
+      this.delegate = delegate;
+      this.counters = counters;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return delegate.getLoggerName();
+    }
+
+    @Override
+    public boolean isLoggable(Level level) {
+      counters.levelChecks.increment();
+      boolean isLoggable = delegate.isLoggable(level);
+      if (isLoggable) {
+        counters.enabledChecks.increment();
+      }
+      return isLoggable;
+    }
+
+    @Override
+    public void log(LogData data) {
+      sites.computeIfAbsent(data.getLogSite(), k -> new SiteCounters()).record(data, countBytes);
+      delegate.log(data);
+    }
+
+    @Override
+    public void handleError(RuntimeException error, LogData badData) {
+      delegate.handleError(error, badData);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.flogger.MetadataKey;
+import java.util.Iterator;
+
+/**
+ * A repeated metadata key which emits all its values as a single joined value (e.g. {@code
+ * custom="foo/bar"}), rather than as a sequence of key/value pairs.
+ *
+ * <p>When emitted to a {@link CharSequenceKeyValueHandler}, values are joined in a reusable
+ * per-thread buffer, so emitting repeated metadata allocates nothing per log statement (provided
+ * the values are character sequences or integral numbers). Other handlers are given a joined
+ * {@code String}.
+ */
+public class JoiningMetadataKey<T> extends MetadataKey<T> {
+  /** Per-thread buffer, with a flag to protect against reentrant use during value formatting. */
+  private static final class Buffer {
+    private final StringBuilder text = new StringBuilder();
+    private boolean inUse = false;
+  }
+
+  private static final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(Buffer::new);
+
+  private final char separator;
+
+  public JoiningMetadataKey(String label, Class<T> clazz, char separator) {
+    super(label, clazz, /* canRepeat= */ true);
+    this.separator = separator;
+  }
+
+  @Override
+  protected void emitRepeated(Iterator<T> values, KeyValueHandler kvh) {
+    if (kvh instanceof CharSequenceKeyValueHandler) {
+      Buffer buf = buffer.get();
+      if (!buf.inUse) {
+        buf.inUse = true;
+        try {
+          buf.text.setLength(0);
+          appendJoined(values, buf.text);
+          ((CharSequenceKeyValueHandler) kvh).handleTransient(getLabel(), buf.text);
+        } finally {
+          buf.inUse = false;
+        }
+        return;
+      }
+    }
+    StringBuilder joined = new StringBuilder();
+    appendJoined(values, joined);
+    kvh.handle(getLabel(), joined.toString());
+  }
+
+  private void appendJoined(Iterator<T> values, StringBuilder out) {
+    if (values.hasNext()) {
+      appendValue(values.next(), out);
+      while (values.hasNext()) {
+        appendValue(values.next(), out.append(separator));
+      }
+    }
+  }
+
+  private static void appendValue(Object value, StringBuilder out) {
+    if (value instanceof CharSequence) {
+      out.append((CharSequence) value);
+    } else if (value instanceof Integer || value instanceof Long) {
+      out.append(((Number) value).longValue());
+    } else {
+      out.append(value);
+    }
+  }
+}
@@ -70,7 +70,7 @@ final class LevelConfig {
     Configurator.setAllLevels("", toLog4JLevel(level));
   }
 
-  private static org.apache.logging.log4j.Level toLog4JLevel(LevelClass level) {
+  static org.apache.logging.log4j.Level toLog4JLevel(LevelClass level) {
     switch (level) {
       case FINEST:
         return org.apache.logging.log4j.Level.TRACE;
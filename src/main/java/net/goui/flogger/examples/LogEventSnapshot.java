@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.Platform;
+import com.google.common.flogger.backend.TemplateContext;
+import java.util.logging.Level;
+
+/**
+ * An immutable snapshot of a log event, captured on the logging thread so that it can be formatted
+ * on another thread.
+ *
+ * <p>Nothing is formatted or copied when the snapshot is taken. The log site, template context and
+ * arguments are held by reference (log statements never reuse them), as is the context metadata of
+ * the logging thread (which is already a flattened, immutable snapshot of all enclosing contexts).
+ *
+ * <p>Since formatting happens outside the logging thread's context, the context metadata is
+ * returned from {@link #getMetadata()} ahead of the log site metadata. Backends which merge this
+ * with their own thread's (empty) context metadata therefore see the same metadata, in the same
+ * order, as they would have on the logging thread.
+ */
+final class LogEventSnapshot implements LogData {
+  private final Level level;
+  private final long timestampNanos;
+  private final String loggerName;
+  private final LogSite logSite;
+  private final TemplateContext templateContext;
+  private final Object[] arguments;
+  private final Object literalArgument;
+  private final Metadata metadata;
+  private final boolean wasForced;
+
+  /** Captures the given log event, and the metadata of the current logging context. */
+  static LogEventSnapshot of(LogData data) {
+    return new LogEventSnapshot(data, Platform.getInjectedMetadata());
+  }
+
+  private LogEventSnapshot(LogData data, Metadata contextMetadata) {
+    this.level = data.getLevel();
+    this.timestampNanos = data.getTimestampNanos();
+    this.loggerName = data.getLoggerName();
+    this.logSite = data.getLogSite();
+    this.templateContext = data.getTemplateContext();
+    if (templateContext != null) {
+      this.arguments = data.getArguments();
+      this.literalArgument = null;
+    } else {
+      this.arguments = null;
+      this.literalArgument = data.getLiteralArgument();
+    }
+    this.metadata =
+        contextMetadata.size() > 0
+            ? new ConcatenatedMetadata(contextMetadata, data.getMetadata())
+            : data.getMetadata();
+    this.wasForced = data.wasForced();
+  }
+
+  @Override
+  public Level getLevel() {
+    return level;
+  }
+
+  @Override
+  @Deprecated
+  public long getTimestampMicros() {
+    return timestampNanos / 1000;
+  }
+
+  @Override
+  public long getTimestampNanos() {
+    return timestampNanos;
+  }
+
+  @Override
+  public String getLoggerName() {
+    return loggerName;
+  }
+
+  @Override
+  public LogSite getLogSite() {
+    return logSite;
+  }
+
+  @Override
+  public Metadata getMetadata() {
+    return metadata;
+  }
+
+  @Override
+  public boolean wasForced() {
+    return wasForced;
+  }
+
+  @Override
+  public TemplateContext getTemplateContext() {
+    return templateContext;
+  }
+
+  @Override
+  public Object[] getArguments() {
+    if (templateContext == null) {
+      throw new IllegalStateException("cannot get arguments unless a template context exists");
+    }
+    return arguments;
+  }
+
+  @Override
+  public Object getLiteralArgument() {
+    if (templateContext != null) {
+      throw new IllegalStateException("cannot get literal argument if a template context exists");
+    }
+    return literalArgument;
+  }
+
+  /** Context metadata followed by log site metadata, without copying either. */
+  private static final class ConcatenatedMetadata extends Metadata {
+    private final Metadata first;
+    private final Metadata second;
+
+    ConcatenatedMetadata(Metadata first, Metadata second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public int size() {
+      return first.size() + second.size();
+    }
+
+    @Override
+    public MetadataKey<?> getKey(int n) {
+      int firstSize = first.size();
+      return n < firstSize ? first.getKey(n) : second.getKey(n - firstSize);
+    }
+
+    @Override
+    public Object getValue(int n) {
+      int firstSize = first.size();
+      return n < firstSize ? first.getValue(n) : second.getValue(n - firstSize);
+    }
+
+    @Override
+    public <T> T findValue(MetadataKey<T> key) {
+      // Log site values take precedence over context values.
+      T value = second.findValue(key);
+      return value != null ? value : first.findValue(key);
+    }
+  }
+}
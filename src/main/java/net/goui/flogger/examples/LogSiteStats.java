@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+/**
+ * A snapshot of the counts for a single log site, as recorded by {@link
+ * InstrumentedBackendFactory}. This is a plain class with getters (rather than a record) so it can
+ * be exported via JMX.
+ */
+public final class LogSiteStats {
+  private final String logSite;
+  private final long emittedCount;
+  private final long suppressedCount;
+  private final long forcedCount;
+  private final long emittedBytes;
+
+  LogSiteStats(
+      String logSite,
+      long emittedCount,
+      long suppressedCount,
+      long forcedCount,
+      long emittedBytes) {
+    this.logSite = logSite;
+    this.emittedCount = emittedCount;
+    this.suppressedCount = suppressedCount;
+    this.forcedCount = forcedCount;
+    this.emittedBytes = emittedBytes;
+  }
+
+  /** The log site as {@code <class>.<method>:<line>}. */
+  public String getLogSite() {
+    return logSite;
+  }
+
+  /** The number of enabled log statements (i.e. emitted or suppressed by rate limiting). */
+  public long getEnabledCount() {
+    return emittedCount + suppressedCount;
+  }
+
+  /** The number of log statements passed to the logging backend. */
+  public long getEmittedCount() {
+    return emittedCount;
+  }
+
+  /**
+   * The number of enabled log statements suppressed by {@code every()}, {@code atMostEvery()} or
+   * {@code per()}. Suppressed statements are only counted once the next statement is emitted.
+   */
+  public long getSuppressedCount() {
+    return suppressedCount;
+  }
+
+  /** The number of emitted log statements which were forced (e.g. by a logging context). */
+  public long getForcedCount() {
+    return forcedCount;
+  }
+
+  /**
+   * The total UTF-8 encoded size of emitted log messages (excluding metadata and layout), or zero
+   * unless byte counting was enabled (see {@link InstrumentedBackendFactory}).
+   */
+  public long getEmittedBytes() {
+    return emittedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s: enabled=%d, emitted=%d, suppressed=%d, forced=%d, bytes=%d",
+        logSite, getEnabledCount(), emittedCount, suppressedCount, forcedCount, emittedBytes);
+  }
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logging statistics exported over JMX by {@link InstrumentedBackendFactory} (with the object
+ * name {@code net.goui.flogger.examples:type=LogStats}).
+ */
+public interface LogStatsMXBean {
+  /** Returns counts for each log site which has emitted a log statement, busiest first. */
+  List<LogSiteStats> getLogSiteStats();
+
+  /**
+   * Returns the number of level checks made by each logger (i.e. for all log statements, enabled
+   * or not). Log sites which are never enabled only appear here, since a disabled log statement
+   * never determines its log site.
+   */
+  Map<String, Long> getLevelCheckCounts();
+
+  /** Returns the number of level checks made by each logger which returned "enabled". */
+  Map<String, Long> getEnabledCheckCounts();
+
+  /** Resets all counts to zero. */
+  void reset();
+}
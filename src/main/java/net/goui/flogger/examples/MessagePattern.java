@@ -0,0 +1,386 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.MessageUtils;
+import com.google.common.flogger.backend.MetadataHandler;
+import com.google.common.flogger.backend.MetadataKeyValueHandlers;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Flogger Next style message pattern (e.g. {@code "%{level} %{message}%{metadata/ [/]}"}),
+ * compiled once into a sequence of parts which append each log event directly into a caller
+ * supplied buffer.
+ *
+ * <p>Flogger Next formats each log event into a new {@code String} which the underlying logging
+ * system then copies into its own buffer. An {@link Emitter} instead appends the formatted event
+ * into any {@link StringBuilder} (e.g. the reusable buffer of a Log4J layout), without creating
+ * any intermediate strings for the pattern's literal text, level, location or metadata labels. The
+ * log message itself is formatted via {@link PrintfFormatPlan}, and timestamps via {@link
+ * CachedTimestampFormatter}.
+ *
+ * <p>The pattern syntax and options match Flogger Next's pattern formatter (see "Custom
+ * Formatting" in the documentation), with options keyed without the {@code
+ * "flogger.message_formatter."} prefix:
+ *
+ * <ul>
+ *   <li>{@code pattern}: The message pattern (default {@value #DEFAULT_PATTERN}).
+ *   <li>{@code timestamp.pattern}: A {@link DateTimeFormatter} pattern for {@code %{timestamp}}
+ *       (default ISO-8601 in UTC).
+ *   <li>{@code metadata.ignore}: A list of metadata keys to omit from {@code %{metadata}}.
+ *   <li>{@code metadata.key.<name>}: The metadata key for a {@code %{key.<name>}} token.
+ * </ul>
+ *
+ * <p>Metadata keys are given as {@code <class-name>#<field-name>}, optionally followed by {@code
+ * :<label>} for keys which emit several labelled values. Keys emitted via {@code %{key.<name>}}
+ * tokens are not repeated in {@code %{metadata}}, and their values are not quoted. Values in {@code
+ * %{metadata}} are quoted and escaped as by Flogger's default formatter.
+ */
+public final class MessagePattern {
+  public static final String DEFAULT_PATTERN = "%{message}%{metadata/ [CONTEXT / ]}";
+
+  private static final char ESCAPE = '\\';
+  private static final char SEPARATOR = '/';
+
+  // Keys ignored in the same way as Flogger's default message formatter (the cause is passed to
+  // the underlying logging system separately).
+  private static final ImmutableSet<MetadataKey<?>> ALWAYS_IGNORED =
+      ImmutableSet.of(LogContext.Key.LOG_CAUSE);
+  // A handler for individual keys, which are found via MetadataProcessor#handle().
+  private static final MetadataHandler<MetadataKey.KeyValueHandler> KEY_HANDLER =
+      MetadataKeyValueHandlers.getDefaultHandler(ImmutableSet.of());
+
+  /** Returns a compiled pattern from the given message formatter options. */
+  public static MessagePattern fromOptions(Map<String, String> options) {
+    List<MetadataKey<?>> ignored = new ArrayList<>(ALWAYS_IGNORED);
+    int ignoredCount = Integer.parseInt(options.getOrDefault("metadata.ignore.size", "0").strip());
+    for (int n = 0; n < ignoredCount; n++) {
+      String spec = options.get("metadata.ignore." + n);
+      checkArgument(spec != null, "missing ignored key: metadata.ignore.%s", n);
+      ignored.add(KeyReference.parse(spec.strip()).key());
+    }
+    String timestampPattern = options.get("timestamp.pattern");
+    DateTimeFormatter timestampFormatter =
+        timestampPattern != null
+            ? DateTimeFormatter.ofPattern(timestampPattern.strip()).withZone(ZoneId.systemDefault())
+            : DateTimeFormatter.ISO_INSTANT;
+    return new MessagePattern(
+        options.getOrDefault("pattern", DEFAULT_PATTERN).strip(),
+        options,
+        ignored,
+        CachedTimestampFormatter.of(timestampFormatter));
+  }
+
+  /** A metadata key (loaded from a static field), and an optional label to select values. */
+  private record KeyReference(MetadataKey<?> key, String label) {
+    static KeyReference parse(String spec) {
+      int hash = spec.indexOf('#');
+      checkArgument(hash > 0, "invalid metadata key (expected <class>#<field>): %s", spec);
+      int colon = spec.indexOf(':', hash);
+      String className = spec.substring(0, hash);
+      String fieldName = spec.substring(hash + 1, colon >= 0 ? colon : spec.length());
+      try {
+        Object key = Class.forName(className).getField(fieldName).get(null);
+        checkArgument(key instanceof MetadataKey, "not a metadata key: %s", spec);
+        String label = colon >= 0 ? spec.substring(colon + 1) : null;
+        return new KeyReference((MetadataKey<?>) key, label);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalArgumentException("cannot load metadata key: " + spec, e);
+      }
+    }
+  }
+
+  /** A compiled element of the pattern, which returns whether it appended a value. */
+  private interface Part {
+    boolean appendTo(Emitter emitter, LogData data, MetadataProcessor metadata, StringBuilder out);
+  }
+
+  private final ImmutableList<Part> parts;
+  private final MetadataPlan metadataPlan;
+  private final ImmutableMap<String, MetadataKey<?>> keysByLabel;
+
+  private MessagePattern(
+      String pattern,
+      Map<String, String> options,
+      List<MetadataKey<?>> ignored,
+      CachedTimestampFormatter timestampFormatter) {
+    Set<MetadataKey<?>> ignoredInMetadata = new HashSet<>(ignored);
+    Map<String, MetadataKey<?>> keysByLabel = new HashMap<>();
+    ignored.stream()
+        .filter(key -> !ALWAYS_IGNORED.contains(key))
+        .forEach(key -> keysByLabel.putIfAbsent(key.getLabel(), key));
+    ImmutableList.Builder<Part> parts = ImmutableList.builder();
+    StringBuilder literal = new StringBuilder();
+    int pos = 0;
+    while (pos < pattern.length()) {
+      int start = pattern.indexOf("%{", pos);
+      if (start < 0) {
+        literal.append(pattern, pos, pattern.length());
+        break;
+      }
+      literal.append(pattern, pos, start);
+      int end = findTokenEnd(pattern, start + 2);
+      List<String> terms = splitToken(pattern.substring(start + 2, end));
+      String name = terms.get(0);
+      String prefix = terms.size() > 1 ? terms.get(1) : "";
+      String suffix = terms.size() > 2 ? terms.get(2) : "";
+      checkArgument(terms.size() <= 3, "too many terms in token: %s", name);
+      Part part;
+      if (name.startsWith("key.")) {
+        String spec = options.get("metadata." + name);
+        checkArgument(spec != null, "no metadata key option for token: %s", name);
+        KeyReference key = KeyReference.parse(spec.strip());
+        ignoredInMetadata.add(key.key());
+        keysByLabel.putIfAbsent(key.key().getLabel(), key.key());
+        part = (emitter, data, metadata, out) -> emitter.appendValues(key, metadata, out);
+      } else if (name.equals("metadata")) {
+        part = (emitter, data, metadata, out) -> emitter.appendMetadata(metadata, out);
+      } else {
+        checkArgument(terms.size() == 1, "prefix/suffix not allowed for token: %s", name);
+        part =
+            switch (name) {
+              case "message" ->
+                  (emitter, data, metadata, out) -> {
+                    PrintfFormatPlan.appendFormattedMessage(data, out);
+                    return true;
+                  };
+              case "timestamp" ->
+                  (emitter, data, metadata, out) -> {
+                    timestampFormatter.appendTo(data.getTimestampNanos(), out);
+                    return true;
+                  };
+              case "level" ->
+                  (emitter, data, metadata, out) -> {
+                    out.append(data.getLevel().getName());
+                    return true;
+                  };
+              case "location" ->
+                  (emitter, data, metadata, out) -> {
+                    LogSite site = data.getLogSite();
+                    out.append(site.getClassName()).append('#').append(site.getMethodName());
+                    return true;
+                  };
+              default -> throw new IllegalArgumentException("unknown token: " + name);
+            };
+      }
+      if (!literal.isEmpty()) {
+        parts.add(literalPart(literal.toString()));
+        literal.setLength(0);
+      }
+      parts.add(prefix.isEmpty() && suffix.isEmpty() ? part : optionalPart(part, prefix, suffix));
+      pos = end + 1;
+    }
+    if (!literal.isEmpty()) {
+      parts.add(literalPart(literal.toString()));
+    }
+    this.parts = parts.build();
+    this.metadataPlan = MetadataPlan.ignoring(ignoredInMetadata);
+    this.keysByLabel = ImmutableMap.copyOf(keysByLabel);
+  }
+
+  /**
+   * Returns the key with the given label from those named in this pattern's options (or null).
+   * This lets metadata which was recorded by label be formatted as if logged with that key.
+   */
+  MetadataKey<?> keyForLabel(String label) {
+    return keysByLabel.get(label);
+  }
+
+  private static int findTokenEnd(String pattern, int pos) {
+    for (; pos < pattern.length(); pos++) {
+      char c = pattern.charAt(pos);
+      if (c == ESCAPE) {
+        pos++;
+      } else if (c == '}') {
+        return pos;
+      }
+    }
+    throw new IllegalArgumentException("unterminated token in pattern: " + pattern);
+  }
+
+  // Splits "name/prefix/suffix" on unescaped separators, and unescapes each term.
+  private static List<String> splitToken(String token) {
+    List<String> terms = new ArrayList<>();
+    StringBuilder term = new StringBuilder();
+    for (int pos = 0; pos < token.length(); pos++) {
+      char c = token.charAt(pos);
+      if (c == ESCAPE && pos + 1 < token.length()) {
+        term.append(token.charAt(++pos));
+      } else if (c == SEPARATOR) {
+        terms.add(term.toString());
+        term.setLength(0);
+      } else {
+        term.append(c);
+      }
+    }
+    terms.add(term.toString());
+    return terms;
+  }
+
+  private static Part literalPart(String text) {
+    return (emitter, data, metadata, out) -> {
+      out.append(text);
+      return true;
+    };
+  }
+
+  private static Part optionalPart(Part part, String prefix, String suffix) {
+    return (emitter, data, metadata, out) -> {
+      int start = out.length();
+      out.append(prefix);
+      if (!part.appendTo(emitter, data, metadata, out)) {
+        out.setLength(start);
+        return false;
+      }
+      out.append(suffix);
+      return true;
+    };
+  }
+
+  /** Returns a new emitter for this pattern (emitters are not thread safe, but are reusable). */
+  public Emitter newEmitter() {
+    return new Emitter();
+  }
+
+  /**
+   * Appends a formatted log event to a buffer, reusing its own state for every event. This is also
+   * the key/value handler for the pattern's metadata tokens, but those methods are not part of the
+   * public API.
+   */
+  public final class Emitter implements CharSequenceKeyValueHandler {
+    private final MetadataPlan.Cursor metadataCursor = metadataPlan.newCursor(this);
+    private StringBuilder out = null;
+    // For "%{key.xxx}" tokens, only values are emitted (optionally only for a single label).
+    private boolean valuesOnly = false;
+    private String labelFilter = null;
+    private int emittedCount = 0;
+
+    private Emitter() {}
+
+    /** Appends the given log event, formatted according to the pattern. */
+    public StringBuilder appendTo(LogData data, MetadataProcessor metadata, StringBuilder out) {
+      for (Part part : parts) {
+        part.appendTo(this, data, metadata, out);
+      }
+      return out;
+    }
+
+    private boolean appendMetadata(MetadataProcessor metadata, StringBuilder out) {
+      start(out, false, null);
+      metadataCursor.render(metadata);
+      return finish();
+    }
+
+    private boolean appendValues(KeyReference key, MetadataProcessor metadata, StringBuilder out) {
+      start(out, true, key.label());
+      metadata.handle(key.key(), KEY_HANDLER, this);
+      return finish();
+    }
+
+    private void start(StringBuilder out, boolean valuesOnly, String labelFilter) {
+      this.out = out;
+      this.valuesOnly = valuesOnly;
+      this.labelFilter = labelFilter;
+      this.emittedCount = 0;
+    }
+
+    private boolean finish() {
+      this.out = null;
+      return emittedCount > 0;
+    }
+
+    @Override
+    public void handle(String label, Object value) {
+      if (startValue(label)) {
+        appendValue(value);
+      }
+    }
+
+    @Override
+    public void handleTransient(String label, CharSequence value) {
+      if (startValue(label)) {
+        if (valuesOnly) {
+          out.append(value);
+        } else {
+          appendQuoted(value);
+        }
+      }
+    }
+
+    private boolean startValue(String label) {
+      if (labelFilter != null && !labelFilter.equals(label)) {
+        return false;
+      }
+      if (emittedCount++ > 0) {
+        out.append(' ');
+      }
+      if (!valuesOnly) {
+        out.append(label).append('=');
+      }
+      return true;
+    }
+
+    // In "%{metadata}", values are formatted as by Flogger's default formatter, which quotes all
+    // values except booleans and primitive numbers (and emits "true" for tags without a value).
+    // Values for "%{key.xxx}" tokens are never quoted. Common types are appended without creating
+    // a string first.
+    private void appendValue(Object value) {
+      if (value instanceof Integer || value instanceof Long) {
+        out.append(((Number) value).longValue());
+      } else if (value instanceof Boolean b) {
+        out.append(b.booleanValue());
+      } else if (value == null) {
+        out.append(valuesOnly ? "null" : "true");
+      } else if (value instanceof Short || value instanceof Byte) {
+        out.append(((Number) value).intValue());
+      } else if (value instanceof Double || value instanceof Float) {
+        out.append(value);
+      } else if (valuesOnly) {
+        out.append(value instanceof CharSequence text ? text : MessageUtils.safeToString(value));
+      } else {
+        appendQuoted(value instanceof CharSequence text ? text : MessageUtils.safeToString(value));
+      }
+    }
+
+    // Escapes text in the same way as Flogger's default formatter.
+    private void appendQuoted(CharSequence text) {
+      out.append('"');
+      for (int n = 0; n < text.length(); n++) {
+        char c = text.charAt(n);
+        switch (c) {
+          case '"', '\\' -> out.append('\\').append(c);
+          case '\n' -> out.append("\\n");
+          case '\r' -> out.append("\\r");
+          case '\t' -> out.append("\\t");
+          default -> out.append(c < 0x20 ? '\uFFFD' : c);
+        }
+      }
+      out.append('"');
+    }
+  }
+}
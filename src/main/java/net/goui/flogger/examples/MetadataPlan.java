@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.MetadataKey.KeyValueHandler;
+import com.google.common.flogger.backend.MetadataHandler;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A metadata handler which decides how to render each metadata key once, rather than for every log
+ * event. Used by {@link MessagePattern} for {@code %{metadata}} tokens.
+ *
+ * <p>Flogger's default handler looks up every key in the ignored set (and its map of per-key
+ * handlers) for each event, and then emits the value via the key. This plan instead holds a tree
+ * of steps, where each path is the sequence of keys seen for a log event. Each step records whether
+ * its key is ignored, emitted directly (for keys with no custom formatting) or emitted via the key.
+ * For subsequent events with the same keys, finding the next step is an identity comparison with
+ * (typically) a single candidate, after which the value is simply passed to the output handler.
+ *
+ * <p>The tree is shared by all threads, and steps are only ever added. To bound memory if metadata
+ * is unusually varied, once {@link #MAX_STEPS} steps exist, new steps are created for each event
+ * without being added to the tree.
+ */
+final class MetadataPlan extends MetadataHandler<MetadataPlan.Cursor> {
+  private static final int MAX_STEPS = 4096;
+  private static final Step[] NO_STEPS = new Step[0];
+
+  private enum Action {
+    IGNORE,
+    EMIT_DIRECT,
+    EMIT_VIA_KEY
+  }
+
+  /** A step for a key, after a specific sequence of preceding keys. */
+  private static final class Step {
+    private final MetadataKey<?> key;
+    private final Action action;
+    // Copy-on-write array of subsequent steps (almost always only one).
+    private volatile Step[] next = NO_STEPS;
+
+    Step(MetadataKey<?> key, Action action) {
+      this.key = key;
+      this.action = action;
+    }
+  }
+
+  private final ImmutableSet<MetadataKey<?>> ignored;
+  private final Step root = new Step(null, Action.IGNORE);
+  private final AtomicInteger stepCount = new AtomicInteger();
+
+  /** Returns a plan which ignores the given keys. */
+  static MetadataPlan ignoring(Set<MetadataKey<?>> ignored) {
+    return new MetadataPlan(ImmutableSet.copyOf(ignored));
+  }
+
+  private MetadataPlan(ImmutableSet<MetadataKey<?>> ignored) {
+    this.ignored = ignored;
+  }
+
+  /** Per-thread rendering state, holding the output handler and the current step. */
+  final class Cursor {
+    private final KeyValueHandler handler;
+    private Step step = root;
+
+    private Cursor(KeyValueHandler handler) {
+      this.handler = handler;
+    }
+
+    /** Emits the (non-ignored) metadata to this cursor's handler. */
+    void render(MetadataProcessor metadata) {
+      step = root;
+      metadata.process(MetadataPlan.this, this);
+    }
+
+    private Action advance(MetadataKey<?> key) {
+      step = nextStep(step, key);
+      return step.action;
+    }
+  }
+
+  /** Returns a new cursor which emits to the given handler (cursors are not thread safe). */
+  Cursor newCursor(KeyValueHandler handler) {
+    return new Cursor(handler);
+  }
+
+  @Override
+  protected <T> void handle(MetadataKey<T> key, T value, Cursor cursor) {
+    switch (cursor.advance(key)) {
+      case IGNORE -> {}
+      case EMIT_DIRECT -> cursor.handler.handle(key.getLabel(), value);
+      case EMIT_VIA_KEY -> key.safeEmit(value, cursor.handler);
+    }
+  }
+
+  @Override
+  protected <T> void handleRepeated(MetadataKey<T> key, Iterator<T> values, Cursor cursor) {
+    switch (cursor.advance(key)) {
+      case IGNORE -> {}
+      case EMIT_DIRECT -> {
+        String label = key.getLabel();
+        while (values.hasNext()) {
+          cursor.handler.handle(label, values.next());
+        }
+      }
+      case EMIT_VIA_KEY -> key.safeEmitRepeated(values, cursor.handler);
+    }
+  }
+
+  private Step nextStep(Step step, MetadataKey<?> key) {
+    Step next = findStep(step.next, key);
+    if (next != null) {
+      return next;
+    }
+    if (stepCount.get() >= MAX_STEPS) {
+      return new Step(key, actionFor(key));
+    }
+    synchronized (step) {
+      // Another thread may have added the step since it was looked for.
+      next = findStep(step.next, key);
+      if (next == null) {
+        next = new Step(key, actionFor(key));
+        Step[] steps = Arrays.copyOf(step.next, step.next.length + 1);
+        steps[steps.length - 1] = next;
+        step.next = steps;
+        stepCount.incrementAndGet();
+      }
+    }
+    return next;
+  }
+
+  private static Step findStep(Step[] steps, MetadataKey<?> key) {
+    for (Step step : steps) {
+      if (step.key == key) {
+        return step;
+      }
+    }
+    return null;
+  }
+
+  private Action actionFor(MetadataKey<?> key) {
+    if (ignored.contains(key)) {
+      return Action.IGNORE;
+    }
+    // Keys created via MetadataKey.single() or repeated() just emit their label and value, but
+    // subclasses may format values, emit multiple labels, or use the handler in other ways.
+    return key.getClass() == MetadataKey.class ? Action.EMIT_DIRECT : Action.EMIT_VIA_KEY;
+  }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.async.AsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.DefaultAsyncQueueFullPolicy;
+import org.apache.logging.log4j.core.async.EventRoute;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * A Log4J {@link AsyncQueueFullPolicy} which discards events at or below a threshold level when the
+ * async logging queue is full (like Log4J's own "Discard" policy), while counting how many events
+ * were discarded and how many had to wait for space. The counts are available via {@link
+ * AsyncLoggingMetrics}.
+ *
+ * <p>Install with:
+ *
+ * <pre>{@code
+ * -Dlog4j2.asyncQueueFullPolicy=net.goui.flogger.examples.MeteredQueueFullPolicy
+ * -Dlog4j2.discardThreshold=INFO
+ * }</pre>
+ *
+ * <p>Setting the threshold to {@code OFF} means nothing is discarded, and all logging threads wait
+ * for space in the queue (but are still counted).
+ */
+public final class MeteredQueueFullPolicy extends DefaultAsyncQueueFullPolicy {
+  private static final String THRESHOLD_PROPERTY = "log4j2.discardThreshold";
+
+  private static final LongAdder discardedCount = new LongAdder();
+  private static final LongAdder delayedCount = new LongAdder();
+
+  /** Returns the number of events discarded because the queue was full. */
+  static long getDiscardedCount() {
+    return discardedCount.sum();
+  }
+
+  /** Returns the number of events which had to wait for space in the queue. */
+  static long getDelayedCount() {
+    return delayedCount.sum();
+  }
+
+  private final Level threshold;
+
+  /** Called reflectively by Log4J. */
+  public MeteredQueueFullPolicy() {
+    this.threshold =
+        Level.toLevel(
+            PropertiesUtil.getProperties().getStringProperty(THRESHOLD_PROPERTY, "INFO"),
+            Level.INFO);
+  }
+
+  @Override
+  public EventRoute getRoute(long backgroundThreadId, Level level) {
+    if (threshold != Level.OFF && level.isLessSpecificThan(threshold)) {
+      discardedCount.increment();
+      return EventRoute.DISCARD;
+    }
+    delayedCount.increment();
+    return super.getRoute(backgroundThreadId, level);
+  }
+}
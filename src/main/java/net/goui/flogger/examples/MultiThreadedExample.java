@@ -41,11 +41,12 @@ public final class MultiThreadedExample {
         GrpcPropagatingExecutorService.wrap(Executors.newFixedThreadPool(taskCount));
     try {
       Supplier<Duration> randomDuration = getDurationSupplier();
-      ImmutableList<ListenableFuture<Boolean>> futures =
+      ImmutableList<TestTask> tasks =
           IntStream.rangeClosed(1, taskCount)
               .mapToObj(n -> new TestTask("task" + n, randomDuration.get(), steps))
-              .map(service::submit)
               .collect(toImmutableList());
+      ImmutableList<ListenableFuture<Boolean>> futures =
+          GrpcPropagatingExecutorService.submitAll(service, tasks);
       Boolean allSuccess =
           Futures.whenAllSucceed(futures)
               .call(() -> futures.stream().allMatch(Futures::getUnchecked), service)
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.MessageUtils;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parameter.Parameter;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import com.google.common.flogger.parser.MessageBuilder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pre-parsed printf format string, consisting of unescaped literal text segments and the typed
+ * parameters between them. Formatting a message with a plan just appends each literal segment and
+ * formats each argument, without re-parsing the format string.
+ *
+ * <p>Plans are cached by format string identity. Format strings in log statements are almost
+ * always compile time constants (and so interned), which means a log site finds its plan without
+ * hashing the string, and a message built at runtime cannot keep its plan alive once it is no
+ * longer used. The cache is also bounded in size.
+ *
+ * <p>Formatting is identical to {@link BaseMessageFormatter#appendFormattedMessage(LogData,
+ * StringBuilder)}, which is used for messages with other parsers. However integral and boolean
+ * arguments for common directives ({@code %d}, {@code %x}, {@code %#x}, {@code %s} etc.) are
+ * written directly into the output buffer, so formatting them allocates nothing.
+ */
+public final class PrintfFormatPlan {
+  private static final int MAX_CACHE_SIZE = 1024;
+  private static final String EXTRA_ARGUMENT_MESSAGE = " [ERROR: UNUSED LOG ARGUMENTS]";
+
+  // Directives with a fast path for primitive wrapper arguments (bit flags).
+  private static final int SLOW_PATH = 0;
+  private static final int DECIMAL = 1;
+  private static final int HEX = 2;
+  private static final int STRING = 4;
+  private static final int BOOLEAN = 8;
+  private static final int ALT_FORM = 16;
+  private static final int UPPER_CASE = 32;
+
+  private static final char[] LOWER_HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final char[] UPPER_HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  // Weak keys compare by identity, which is exactly what's wanted here.
+  private static final Cache<String, PrintfFormatPlan> cache =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_CACHE_SIZE).build();
+
+  /**
+   * Appends the formatted message of the given log data, using a cached plan for printf messages.
+   */
+  public static StringBuilder appendFormattedMessage(LogData data, StringBuilder out) {
+    TemplateContext context = data.getTemplateContext();
+    if (context == null) {
+      return out.append(MessageUtils.safeToString(data.getLiteralArgument()));
+    }
+    if (context.getParser() != DefaultPrintfMessageParser.getInstance()) {
+      return BaseMessageFormatter.appendFormattedMessage(data, out);
+    }
+    return forFormat(context.getMessage()).appendTo(data.getArguments(), out);
+  }
+
+  /**
+   * Returns the plan for a printf format string, parsing and caching it if needed.
+   *
+   * @throws com.google.common.flogger.parser.ParseException if the format string is invalid.
+   */
+  public static PrintfFormatPlan forFormat(String format) {
+    return cache.asMap().computeIfAbsent(format, f -> new PlanBuilder(f).build());
+  }
+
+  private final TemplateContext context;
+  // There is always one more literal segment than parameters (segments may be empty).
+  private final String[] literals;
+  private final Parameter[] parameters;
+  private final int[] fastPaths;
+  private final int expectedArgumentCount;
+
+  private PrintfFormatPlan(
+      TemplateContext context,
+      List<String> literals,
+      List<Parameter> parameters,
+      int expectedArgumentCount) {
+    this.context = context;
+    this.literals = literals.toArray(String[]::new);
+    this.parameters = parameters.toArray(Parameter[]::new);
+    this.fastPaths = parameters.stream().mapToInt(PrintfFormatPlan::fastPathOf).toArray();
+    this.expectedArgumentCount = expectedArgumentCount;
+  }
+
+  private static int fastPathOf(Parameter parameter) {
+    // The format does not include the argument index, so "%2$d" is just "%d".
+    return switch (parameter.getFormat()) {
+      case "%d" -> DECIMAL;
+      case "%s" -> STRING;
+      case "%b" -> BOOLEAN;
+      case "%x" -> HEX;
+      case "%#x" -> HEX | ALT_FORM;
+      case "%X" -> HEX | UPPER_CASE;
+      case "%#X" -> HEX | ALT_FORM | UPPER_CASE;
+      default -> SLOW_PATH;
+    };
+  }
+
+  /** Appends the message formatted with the given arguments. */
+  public StringBuilder appendTo(Object[] args, StringBuilder out) {
+    // Only created if an argument cannot be appended directly.
+    Formatter formatter = null;
+    for (int i = 0; i < parameters.length; i++) {
+      out.append(literals[i]);
+      Parameter parameter = parameters[i];
+      int index = parameter.getIndex();
+      if (index < args.length && appendDirectly(args[index], fastPaths[i], out)) {
+        continue;
+      }
+      if (formatter == null) {
+        formatter = new Formatter(context, args, out);
+      }
+      parameter.accept(formatter, args);
+    }
+    out.append(literals[parameters.length]);
+    if (args.length > expectedArgumentCount) {
+      out.append(EXTRA_ARGUMENT_MESSAGE);
+    }
+    return out;
+  }
+
+  /**
+   * Appends a primitive wrapper argument without allocating, with the same output as {@link
+   * java.util.Formatter}. Returns false if the argument or directive has no fast path.
+   */
+  private static boolean appendDirectly(Object arg, int fastPath, StringBuilder out) {
+    if (fastPath == SLOW_PATH) {
+      return false;
+    }
+    if (arg instanceof Boolean b) {
+      // Other directives are invalid for booleans, so leave reporting the error to the formatter.
+      if ((fastPath & (STRING | BOOLEAN)) == 0) {
+        return false;
+      }
+      out.append(b.booleanValue());
+      return true;
+    }
+    // The bit width is needed to format negative values as unsigned hex.
+    int bits;
+    long value;
+    if (arg instanceof Integer n) {
+      bits = Integer.SIZE;
+      value = n;
+    } else if (arg instanceof Long n) {
+      bits = Long.SIZE;
+      value = n;
+    } else if (arg instanceof Short n) {
+      bits = Short.SIZE;
+      value = n;
+    } else if (arg instanceof Byte n) {
+      bits = Byte.SIZE;
+      value = n;
+    } else {
+      return false;
+    }
+    if ((fastPath & BOOLEAN) != 0) {
+      // Any non-null argument is formatted as "true" by "%b", so leave this to the formatter.
+      return false;
+    }
+    if ((fastPath & HEX) == 0) {
+      out.append(value);
+      return true;
+    }
+    boolean upperCase = (fastPath & UPPER_CASE) != 0;
+    if ((fastPath & ALT_FORM) != 0) {
+      out.append(upperCase ? "0X" : "0x");
+    }
+    if (bits < Long.SIZE) {
+      value &= (1L << bits) - 1;
+    }
+    char[] hexDigits = upperCase ? UPPER_HEX_DIGITS : LOWER_HEX_DIGITS;
+    int digitCount = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 3) / 4);
+    for (int shift = 4 * (digitCount - 1); shift >= 0; shift -= 4) {
+      out.append(hexDigits[(int) (value >>> shift) & 0xF]);
+    }
+    return true;
+  }
+
+  /** Formats individual parameters exactly as Flogger's default formatter does. */
+  private static final class Formatter extends BaseMessageFormatter {
+    Formatter(TemplateContext context, Object[] args, StringBuilder out) {
+      super(context, args, out);
+    }
+  }
+
+  /** Records literal segments and parameters as the format string is parsed. */
+  private static final class PlanBuilder extends MessageBuilder<PrintfFormatPlan> {
+    private final List<String> literals = new ArrayList<>();
+    private final List<Parameter> parameters = new ArrayList<>();
+    private final StringBuilder literal = new StringBuilder();
+    private int literalStart = 0;
+
+    PlanBuilder(String format) {
+      super(new TemplateContext(DefaultPrintfMessageParser.getInstance(), format));
+    }
+
+    @Override
+    protected void addParameterImpl(int termStart, int termEnd, Parameter param) {
+      addLiteral(termStart);
+      parameters.add(param);
+      literalStart = termEnd;
+    }
+
+    @Override
+    protected PrintfFormatPlan buildImpl() {
+      addLiteral(getMessage().length());
+      return new PrintfFormatPlan(
+          new TemplateContext(getParser(), getMessage()),
+          literals,
+          parameters,
+          getExpectedArgumentCount());
+    }
+
+    private void addLiteral(int end) {
+      literal.setLength(0);
+      getParser().unescape(literal, getMessage(), literalStart, end);
+      literals.add(literal.toString());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.MetadataProcessor;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+
+/**
+ * A Log4J message for a Flogger log event, which is formatted directly into Log4J's own reusable
+ * buffer (via {@link #formatTo(StringBuilder)}) when the event is written. Instances are owned by a
+ * single thread and reused for each log event.
+ */
+final class ReusableLogMessage implements ReusableMessage {
+  private static final long serialVersionUID = 1L;
+  private static final Object[] NO_PARAMETERS = new Object[0];
+
+  // Never serialized, since Log4J serializes the memento() of reusable messages.
+  private final transient MessagePattern.Emitter emitter;
+  private transient LogData data = null;
+  private transient MetadataProcessor metadata = null;
+
+  ReusableLogMessage(MessagePattern pattern) {
+    this.emitter = pattern.newEmitter();
+  }
+
+  /**
+   * Sets the event for this message, returning false if the message is already in use (e.g. if
+   * formatting an argument caused more logging on the same thread).
+   */
+  boolean set(LogData data, MetadataProcessor metadata) {
+    if (this.data != null) {
+      return false;
+    }
+    this.data = data;
+    this.metadata = metadata;
+    return true;
+  }
+
+  /** Releases the current event, allowing this message to be reused. */
+  void clear() {
+    this.data = null;
+    this.metadata = null;
+  }
+
+  @Override
+  public void formatTo(StringBuilder buffer) {
+    emitter.appendTo(data, metadata, buffer);
+  }
+
+  @Override
+  public String getFormattedMessage() {
+    StringBuilder buffer = new StringBuilder();
+    formatTo(buffer);
+    return buffer.toString();
+  }
+
+  @Override
+  public String getFormat() {
+    return getFormattedMessage();
+  }
+
+  @Override
+  public Object[] getParameters() {
+    return NO_PARAMETERS;
+  }
+
+  @Override
+  public Throwable getThrowable() {
+    // The cause is passed to Log4J separately.
+    return null;
+  }
+
+  @Override
+  public Object[] swapParameters(Object[] emptyReplacement) {
+    return emptyReplacement;
+  }
+
+  @Override
+  public short getParameterCount() {
+    return 0;
+  }
+
+  @Override
+  public Message memento() {
+    return new SimpleMessage(getFormattedMessage());
+  }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import net.goui.flogger.testing.LevelClass;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+
+/**
+ * Changes the log level of named loggers while an application is running, without reconfiguring
+ * the rest of the logger tree.
+ *
+ * <p>{@link LevelConfig} sets levels via {@code Configurator.setAllLevels()}, which rebuilds the
+ * state of every logger. That's fine at startup, but changing levels during an incident should not
+ * pause threads which are logging elsewhere. This class only updates the loggers affected by a
+ * change, and each logger's new level is published with a single volatile write, so logging
+ * threads never block on a level change.
+ *
+ * <p>This works best with Flogger Next's backend naming (e.g. {@code
+ * flogger.backend_naming.retain_at_most}), since many classes then share a small number of backend
+ * loggers, and setting the level of a backend name affects all the classes which use it:
+ *
+ * <pre>{@code
+ * RuntimeLevelControl.setLevels(ImmutableMap.of(
+ *     "net.goui.flogger.examples", LevelClass.FINE,
+ *     "com.example.noisy.library", LevelClass.WARNING));
+ * }</pre>
+ *
+ * <p>As for JDK loggers, a new level also applies to existing loggers below the given name, unless
+ * they have a level (or Log4J configuration) of their own. JDK handler levels are not changed.
+ */
+public final class RuntimeLevelControl {
+  // JDK loggers are only weakly referenced by the LogManager, so we must hold any we configure to
+  // prevent their level being lost if they are garbage collected.
+  private static final Map<String, Logger> jdkLoggers = new ConcurrentHashMap<>();
+
+  /** Sets the level of a single named logger (see {@link #setLevels(Map)}). */
+  public static void setLevel(String loggerName, LevelClass level) {
+    setLevels(ImmutableMap.of(loggerName, level));
+  }
+
+  /**
+   * Sets the levels of the given named loggers. Each change checks the names of all existing Log4J
+   * loggers to find those affected, and for a name without its own Log4J configuration, Log4J also
+   * re-links every configured logger when one is added. Concurrent calls to this method are
+   * serialized, but logging is never blocked.
+   */
+  public static synchronized void setLevels(Map<String, LevelClass> levels) {
+    levels.keySet().forEach(name -> checkArgument(!name.isEmpty(), "cannot set root logger"));
+    LoggerContext context = (LoggerContext) LogManager.getContext(false);
+    Configuration config = context.getConfiguration();
+    levels.forEach(
+        (name, level) -> {
+          setLog4JLevel(context, config, name, LevelConfig.toLog4JLevel(level));
+          jdkLoggers.computeIfAbsent(name, Logger::getLogger).setLevel(level.toJdkLogLevel());
+        });
+  }
+
+  private static void setLog4JLevel(
+      LoggerContext context, Configuration config, String name, Level level) {
+    // Update the configuration first, so loggers created after this get the new level.
+    LoggerConfig loggerConfig = config.getLoggerConfig(name);
+    if (loggerConfig.getName().equals(name)) {
+      loggerConfig.setLevel(level);
+    } else {
+      // Additive, with no appenders, so log events still reach the parent's appenders.
+      config.addLogger(name, new LoggerConfig(name, level, /* additive= */ true));
+    }
+    // Then update the logger itself, and any existing loggers below it which use its configuration
+    // (rather than calling context.updateLoggers(), which would rebuild the state of every logger
+    // in the context).
+    LoggerConfig updated = config.getLoggerConfig(name);
+    String childPrefix = name + ".";
+    for (org.apache.logging.log4j.core.Logger logger : context.getLoggers()) {
+      String loggerName = logger.getName();
+      if (loggerName.startsWith(childPrefix) && config.getLoggerConfig(loggerName) == updated) {
+        logger.setLevel(level);
+      }
+    }
+    context.getLogger(name).setLevel(level);
+  }
+
+  private RuntimeLevelControl() {}
+}
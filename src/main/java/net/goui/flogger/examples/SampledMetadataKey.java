@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.common.base.Ticker;
+import com.google.common.flogger.MetadataKey;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A base class for procedural metadata keys which emit a sampled value, such as heap usage or load
+ * average, that is expensive to compute on every log statement. The underlying value is sampled at
+ * most once per period, and between samples every log statement emits the cached value.
+ *
+ * <p>Like any procedural key, this is added to a log statement with {@code with(KEY)}:
+ *
+ * <pre>{@code
+ * private static final MetadataKey<Boolean> HEAP_USED =
+ *     new SampledMetadataKey<Long>("heap_used", Duration.ofSeconds(10)) {
+ *       @Override
+ *       protected Long sample() {
+ *         Runtime rt = Runtime.getRuntime();
+ *         return rt.totalMemory() - rt.freeMemory();
+ *       }
+ *     };
+ * ...
+ * logger.atInfo().with(HEAP_USED).log("Some message");
+ * }</pre>
+ *
+ * <p>Reading the cached value is lock-free. When a sample expires, exactly one emitting thread
+ * claims the refresh and other threads carry on emitting the previous value until it completes. By
+ * default the claiming thread performs the refresh itself (so that one log statement per period
+ * waits for the value to be sampled), but a separate executor can be given so that no logging
+ * thread ever waits for the underlying value to be sampled. The only time a logging thread must
+ * sample the value is the very first time the key is emitted. If the executor rejects a refresh,
+ * the previous value is emitted and a later log statement tries again.
+ *
+ * @param <T> the type of the sampled value.
+ */
+public abstract class SampledMetadataKey<T> extends MetadataKey<Boolean> {
+  /** A sampled value and the time (from the key's ticker) at which it was taken. */
+  private static final class Sample<T> {
+    private final T value;
+    private final long timestampNanos;
+
+    Sample(T value, long timestampNanos) {
+      this.value = value;
+      this.timestampNanos = timestampNanos;
+    }
+  }
+
+  private final long periodNanos;
+  private final Executor refreshExecutor;
+  private final Ticker ticker;
+  private final AtomicBoolean isRefreshing = new AtomicBoolean();
+  private volatile Sample<T> sample = null;
+
+  /**
+   * Creates a sampled key where the value is refreshed, at most once per period, by the first
+   * logging thread to notice the sample has expired. That thread waits for the new sample, so use
+   * {@link #SampledMetadataKey(String, Duration, Executor)} if sampling might be slow.
+   */
+  protected SampledMetadataKey(String label, Duration period) {
+    this(label, period, directExecutor());
+  }
+
+  /**
+   * Creates a sampled key where the value is refreshed, at most once per period, via the given
+   * executor. Logging threads never wait for the refresh to complete.
+   */
+  protected SampledMetadataKey(String label, Duration period, Executor refreshExecutor) {
+    this(label, period, refreshExecutor, Ticker.systemTicker());
+  }
+
+  SampledMetadataKey(String label, Duration period, Executor refreshExecutor, Ticker ticker) {
+    super(label, Boolean.class, /* canRepeat= */ false);
+    checkArgument(!period.isNegative() && !period.isZero(), "period must be positive: %s", period);
+    this.periodNanos = period.toNanos();
+    this.refreshExecutor = checkNotNull(refreshExecutor);
+    this.ticker = checkNotNull(ticker);
+  }
+
+  /**
+   * Returns the current value of the underlying data to be emitted, or {@code null} to emit
+   * nothing.
+   *
+   * <p>Note: This is called from within the logging system, so it MUST NOT do any logging itself or
+   * call any code which might do logging.
+   */
+  protected abstract T sample();
+
+  @Override
+  protected final void emit(Boolean enabled, KeyValueHandler kvh) {
+    if (enabled) {
+      T value = currentValue();
+      if (value != null) {
+        kvh.handle(getLabel(), value);
+      }
+    }
+  }
+
+  private T currentValue() {
+    Sample<T> current = sample;
+    if (current == null) {
+      // Only happens before the first sample completes, when there's no other value to emit.
+      current = takeSample();
+    } else if (ticker.read() - current.timestampNanos >= periodNanos
+        && isRefreshing.compareAndSet(false, true)) {
+      try {
+        refreshExecutor.execute(this::refresh);
+      } catch (RuntimeException e) {
+        // E.g. a rejected execution. Metadata emission must not fail the log statement, so emit
+        // the previous value and let a later log statement try again.
+        isRefreshing.set(false);
+      }
+      // Pick up the new value if the refresh was done synchronously.
+      current = sample;
+    }
+    return current.value;
+  }
+
+  private void refresh() {
+    try {
+      takeSample();
+    } finally {
+      isRefreshing.set(false);
+    }
+  }
+
+  private Sample<T> takeSample() {
+    Sample<T> newSample = new Sample<>(sample(), ticker.read());
+    sample = newSample;
+    return newSample;
+  }
+}
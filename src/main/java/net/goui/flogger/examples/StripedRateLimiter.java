@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A rate limiter for log statements which are hit concurrently by many threads, as an alternative
+ * to Flogger's {@code every(N)} and {@code atMostEvery(...)}.
+ *
+ * <p>Flogger's rate limiters update a single counter or timestamp per log site for every call,
+ * which becomes a point of contention when many threads run the same code. This class spreads
+ * updates across per-CPU cells (in the same way as {@link LongAdder}), at the cost of the "every N"
+ * limit becoming approximate.
+ *
+ * <p>The limiter should be checked only once the log statement is known to be enabled, and the
+ * number of skipped statements it returns can be added as metadata:
+ *
+ * <pre>{@code
+ * private static final StripedRateLimiter EVERY_1000 = StripedRateLimiter.every(1000);
+ * ...
+ * FluentLogger.Api api = logger.atInfo();
+ * if (api.isEnabled()) {
+ *   int skipped = EVERY_1000.check();
+ *   if (skipped >= 0) {
+ *     api.with(LogContext.Key.SKIPPED_LOG_COUNT, skipped).log("Processed: %s", item);
+ *   }
+ * }
+ * }</pre>
+ */
+public abstract class StripedRateLimiter {
+  /**
+   * Returns a limiter which allows approximately one in every {@code n} calls (including the first
+   * call). Each thread counts calls in batches before updating the shared count, so the exact call
+   * which is allowed can be up to about {@code n} calls late.
+   */
+  public static StripedRateLimiter every(int n) {
+    checkArgument(n > 0, "rate limit count must be positive: %s", n);
+    return new EveryN(n, cellCount());
+  }
+
+  /** Returns a limiter which allows at most one call per time period (including the first call). */
+  public static StripedRateLimiter atMostEvery(int n, TimeUnit unit) {
+    checkArgument(n > 0, "rate limit period must be positive: %s", n);
+    return new AtMostEvery(unit.toNanos(n), Ticker.systemTicker());
+  }
+
+  private static int cellCount() {
+    return Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+  }
+
+  /**
+   * Returns {@code -1} if a log statement should be skipped, or the number of calls skipped since
+   * the last allowed call if it should be logged.
+   */
+  public abstract int check();
+
+  private StripedRateLimiter() {}
+
+  static final class EveryN extends StripedRateLimiter {
+    // Cells are spaced 128 bytes apart to avoid false sharing.
+    private static final int PADDING = 16;
+
+    private final int n;
+    private final int batchSize;
+    private final int cellMask;
+    private final AtomicLongArray cells;
+    private final AtomicBoolean isStarted = new AtomicBoolean();
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong lastAllowedCount = new AtomicLong();
+
+    EveryN(int n, int cellCount) {
+      this.n = n;
+      // Cells can hold up to (batchSize - 1) uncounted calls, so keep the total below n.
+      this.batchSize = Math.max(1, n / cellCount);
+      this.cellMask = cellCount - 1;
+      this.cells = new AtomicLongArray(cellCount * PADDING);
+    }
+
+    @Override
+    public int check() {
+      // Only written once, so reading this doesn't cause contention.
+      if (!isStarted.get() && isStarted.compareAndSet(false, true)) {
+        return 0;
+      }
+      long id = Thread.currentThread().threadId();
+      int cell = (int) (id ^ (id >>> 16)) & cellMask;
+      if (cells.incrementAndGet(cell * PADDING) % batchSize != 0) {
+        return -1;
+      }
+      long total = count.addAndGet(batchSize);
+      if ((total - batchSize) / n == total / n) {
+        return -1;
+      }
+      // Threads can get here out of order, so the last allowed count must only ever increase.
+      long previous = lastAllowedCount.getAndAccumulate(total, Math::max);
+      return (int) Math.min(Math.max(total - previous - 1, 0), Integer.MAX_VALUE);
+    }
+  }
+
+  static final class AtMostEvery extends StripedRateLimiter {
+    private final long periodNanos;
+    private final Ticker ticker;
+    // Only written when a call is allowed, so is read without contention by skipped calls.
+    private final AtomicLong nextAllowedNanos = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder skippedCount = new LongAdder();
+
+    AtMostEvery(long periodNanos, Ticker ticker) {
+      this.periodNanos = periodNanos;
+      this.ticker = ticker;
+    }
+
+    @Override
+    public int check() {
+      long now = ticker.read();
+      long nextAllowed = nextAllowedNanos.get();
+      if (now < nextAllowed || !nextAllowedNanos.compareAndSet(nextAllowed, now + periodNanos)) {
+        skippedCount.increment();
+        return -1;
+      }
+      // Calls skipped concurrently with this may be counted now or after the next allowed call.
+      return (int) Math.min(skippedCount.sumThenReset(), Integer.MAX_VALUE);
+    }
+  }
+}
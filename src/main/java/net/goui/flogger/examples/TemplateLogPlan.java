@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.flogger.LoggingApi;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A String Template log statement compiled into a printf format string, which is created once for
+ * each distinct template and reused for every subsequent log statement.
+ *
+ * <pre>{@code
+ * at(logger.atInfo())."With printf formatting: %#x\{a} + %#x\{b} = %#x\{a + b}".log();
+ * }</pre>
+ *
+ * <p>A printf directive immediately before an embedded expression (e.g. {@code %#x\{a}}) is used
+ * to format that value, and other values are formatted with {@code %s}. All other text is literal
+ * (so a {@code '%'} not followed by an expression needs no escaping, and {@code %n\{x}} is the
+ * literal text {@code "%n"} followed by the formatted value).
+ *
+ * <p>Plans are cached by the identity of the template's fragment list, which is created once for
+ * each template expression in the code, so a log statement finds its plan without hashing or
+ * parsing any strings. Since the resulting format string is also the same instance each time, the
+ * backend can cache its own parsing of it (e.g. via {@link PrintfFormatPlan}). The cache has weak
+ * keys and is bounded in size.
+ *
+ * <p>For disabled log statements, {@link #at(LoggingApi)} returns a shared no-op processor which
+ * ignores the template. The template and its values are still created by the calling code, but
+ * since nothing uses them, the JIT compiler can usually eliminate them once the call is inlined.
+ */
+public final class TemplateLogPlan {
+  private static final int MAX_CACHE_SIZE = 1024;
+
+  // A printf directive at the end of a fragment (before an embedded expression). Since "%n" takes
+  // no argument and "%%" is an escaped '%', neither can format a value.
+  private static final Pattern TRAILING_DIRECTIVE =
+      Pattern.compile("(?<!%)%[-#+ 0,(]*\\d*(?:\\.\\d+)?(?:[tT][a-zA-Z]|[a-mo-zA-Z])$");
+  private static final String DEFAULT_DIRECTIVE = "%s";
+
+  private static final Loggable NO_OP = () -> {};
+  private static final Processor DISABLED = new Processor(null);
+
+  // Weak keys compare by identity, which is exactly what's wanted here.
+  private static final Cache<List<String>, TemplateLogPlan> cache =
+      CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_CACHE_SIZE).build();
+
+  /** The result of processing a template, which is logged by calling {@link #log()}. */
+  public interface Loggable {
+    void log();
+  }
+
+  /**
+   * Returns a String Template processor for the given log statement, which must be called directly
+   * from the log statement (so its log site can be determined).
+   */
+  public static Processor at(LoggingApi<?> api) {
+    if (!api.isEnabled()) {
+      return DISABLED;
+    }
+    // This method and the caller of this method (the log statement).
+    return new Processor(api.withInjectedLogSite(CachedLogSites.callerLogSite(1)));
+  }
+
+  /** Processes String Templates for a single enabled log statement (or ignores them). */
+  public static final class Processor
+      implements StringTemplate.Processor<Loggable, RuntimeException> {
+    private final LoggingApi<?> api;
+
+    private Processor(LoggingApi<?> api) {
+      this.api = api;
+    }
+
+    @Override
+    public Loggable process(StringTemplate template) {
+      if (api == null) {
+        return NO_OP;
+      }
+      String format = forFragments(template.fragments()).format();
+      return () -> api.logVarargs(format, template.values().toArray());
+    }
+  }
+
+  /** Returns the plan for a template's fragments, compiling and caching it if needed. */
+  static TemplateLogPlan forFragments(List<String> fragments) {
+    return cache.asMap().computeIfAbsent(fragments, TemplateLogPlan::new);
+  }
+
+  private final String format;
+
+  private TemplateLogPlan(List<String> fragments) {
+    StringBuilder format = new StringBuilder();
+    int last = fragments.size() - 1;
+    for (int i = 0; i < last; i++) {
+      String fragment = fragments.get(i);
+      Matcher directive = TRAILING_DIRECTIVE.matcher(fragment);
+      if (directive.find()) {
+        appendEscaped(fragment.substring(0, directive.start()), format);
+        format.append(directive.group());
+      } else {
+        appendEscaped(fragment, format);
+        format.append(DEFAULT_DIRECTIVE);
+      }
+    }
+    appendEscaped(fragments.get(last), format);
+    this.format = format.toString();
+  }
+
+  private static void appendEscaped(String literal, StringBuilder out) {
+    out.append(literal.replace("%", "%%"));
+  }
+
+  /** Returns the printf format string for this plan. */
+  String format() {
+    return format;
+  }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor service which runs every task in its own virtual thread, propagating the gRPC context
+ * of the submitting thread (and with it any Flogger {@code ScopedLoggingContext} state) into the
+ * task.
+ *
+ * <p>Unlike {@link GrpcPropagatingExecutorService}, which is designed to wrap an arbitrary (usually
+ * pooled) executor, this class is built for the "one task per virtual thread" model:
+ *
+ * <ul>
+ *   <li>Tasks submitted outside any logging context are run directly, since a new virtual thread
+ *       already starts in the root context. This avoids both the wrapper allocation and the thread
+ *       local write for attaching a context in the new thread.
+ *   <li>Otherwise the submitting thread's context is captured once, by reference. Flogger's tags,
+ *       metadata and log level maps are held immutably in that context, so propagation costs the
+ *       same regardless of how much logging state the context carries.
+ * </ul>
+ *
+ * <p>Note that Flogger's gRPC context provider reads its state from {@link Context#current()}, so
+ * the context must still be attached in the task's thread. Carrying it via a {@code ScopedValue}
+ * instead would be invisible to Flogger unless the gRPC context storage were also replaced.
+ */
+public final class VirtualThreadPropagatingExecutorService extends AbstractExecutorService {
+  /** Returns a new listening executor service which runs each task in a new virtual thread. */
+  public static ListeningExecutorService create() {
+    return MoreExecutors.listeningDecorator(
+        new VirtualThreadPropagatingExecutorService(Executors.newVirtualThreadPerTaskExecutor()));
+  }
+
+  private final ExecutorService delegate;
+
+  private VirtualThreadPropagatingExecutorService(ExecutorService delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    Context context = Context.current();
+    delegate.execute(context != Context.ROOT ? context.wrap(command) : command);
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.context.ScopedLoggingContexts;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import net.goui.flogger.examples.AsyncLoggingStage.OverflowPolicy;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AsyncLoggingStageTest {
+  private static final MetadataKey<String> ID = MetadataKey.single("id", String.class);
+
+  private final List<LogData> logged = new CopyOnWriteArrayList<>();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private volatile boolean blockOutput = false;
+  private volatile boolean outputInterrupted = false;
+
+  // Records events, and (when requested) blocks output until released. Since output must never be
+  // interrupted, an interrupt is recorded (and the event output) rather than waited through.
+  private final LoggerBackend backend =
+      TestLogger.recording(
+          Level.ALL,
+          data -> {
+            logged.add(data);
+            try {
+              if (Thread.interrupted()) {
+                throw new InterruptedException();
+              }
+              if (blockOutput) {
+                release.await();
+              }
+            } catch (InterruptedException e) {
+              outputInterrupted = true;
+            }
+          });
+
+  private static List<Object> messages(List<LogData> logged) {
+    List<Object> messages = new ArrayList<>();
+    for (LogData data : logged) {
+      messages.add(data.getLiteralArgument());
+    }
+    return messages;
+  }
+
+  @Test
+  public void testPerThreadOrdering() throws Exception {
+    AsyncLoggingStage stage = AsyncLoggingStage.create(2, 16, OverflowPolicy.BLOCK);
+    TestLogger logger = new TestLogger(stage.wrap(backend));
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      int id = t;
+      threads.add(
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    for (int n = 0; n < 100; n++) {
+                      logger.atInfo().log("thread=%d, n=%d", id, n);
+                    }
+                  }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    stage.shutdown();
+
+    assertThat(logged).hasSize(400);
+    int[] expected = new int[4];
+    for (LogData data : logged) {
+      Object[] args = data.getArguments();
+      int id = (Integer) args[0];
+      assertThat(args[1]).isEqualTo(expected[id]++);
+    }
+    assertThat(stage.metrics().discardedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDropLowestLevelFirst() {
+    AsyncLoggingStage stage =
+        AsyncLoggingStage.create(1, 2, OverflowPolicy.DROP_LOWEST_LEVEL_FIRST);
+    TestLogger logger = new TestLogger(stage.wrap(backend));
+    blockOutput = true;
+    logger.atInfo().log("blocking");
+    // Wait for the worker to take the first event (and block), leaving the queue empty.
+    while (logged.isEmpty()) {
+      Thread.onSpinWait();
+    }
+
+    logger.atFine().log("fine");
+    logger.atInfo().log("info");
+    // Queue is full, so the oldest lower level event is dropped.
+    logger.atWarning().log("warning");
+    // There are no lower level events, so the new event is dropped.
+    logger.atFine().log("dropped");
+    assertThat(stage.metrics()).isEqualTo(new AsyncLoggingStage.Metrics(2, 2, 0, 2));
+
+    release.countDown();
+    stage.shutdown();
+    assertThat(messages(logged)).containsExactly("blocking", "info", "warning").inOrder();
+  }
+
+  @Test
+  public void testBlock() throws Exception {
+    AsyncLoggingStage stage = AsyncLoggingStage.create(1, 1, OverflowPolicy.BLOCK);
+    TestLogger logger = new TestLogger(stage.wrap(backend));
+    blockOutput = true;
+    logger.atInfo().log("blocking");
+    while (logged.isEmpty()) {
+      Thread.onSpinWait();
+    }
+    logger.atFine().log("queued");
+
+    // The queue is full, so the logging thread waits until the worker is released.
+    Thread thread = Thread.ofPlatform().start(() -> logger.atFine().log("blocked"));
+    while (thread.getState() != Thread.State.TIMED_WAITING) {
+      Thread.onSpinWait();
+    }
+    release.countDown();
+    thread.join();
+    stage.shutdown();
+
+    assertThat(messages(logged)).containsExactly("blocking", "queued", "blocked").inOrder();
+    assertThat(stage.metrics()).isEqualTo(new AsyncLoggingStage.Metrics(1, 0, 1, 0));
+  }
+
+  @Test
+  public void testShutdown_outputsDirectly() throws Exception {
+    AsyncLoggingStage stage = AsyncLoggingStage.create(1, 1, OverflowPolicy.BLOCK);
+    TestLogger logger = new TestLogger(stage.wrap(backend));
+    blockOutput = true;
+    logger.atInfo().log("blocking");
+    while (logged.isEmpty()) {
+      Thread.onSpinWait();
+    }
+    logger.atInfo().log("queued");
+    Thread thread = Thread.ofPlatform().start(() -> logger.atInfo().log("blocked"));
+    while (thread.getState() != Thread.State.TIMED_WAITING) {
+      Thread.onSpinWait();
+    }
+
+    // The worker is stuck, but once the stage is stopped the blocked thread outputs its event.
+    blockOutput = false;
+    Thread shutdown = Thread.ofPlatform().start(stage::shutdown);
+    thread.join();
+    assertThat(messages(logged)).containsExactly("blocking", "blocked").inOrder();
+    release.countDown();
+    shutdown.join();
+
+    logger.atInfo().log("after shutdown");
+    assertThat(messages(logged))
+        .containsExactly("blocking", "blocked", "queued", "after shutdown")
+        .inOrder();
+    assertThat(outputInterrupted).isFalse();
+  }
+
+  @Test
+  public void testShutdown_drainsQueueWithoutInterrupting() throws Exception {
+    AsyncLoggingStage stage = AsyncLoggingStage.create(1, 4, OverflowPolicy.BLOCK);
+    TestLogger logger = new TestLogger(stage.wrap(backend));
+    blockOutput = true;
+    logger.atInfo().log("blocking");
+    while (logged.isEmpty()) {
+      Thread.onSpinWait();
+    }
+    logger.atInfo().log("first");
+    logger.atInfo().log("second");
+
+    // The worker is still outputting when shutdown is requested, and then drains its queue.
+    Thread shutdown = Thread.ofPlatform().start(stage::shutdown);
+    while (shutdown.getState() != Thread.State.TIMED_WAITING) {
+      Thread.onSpinWait();
+    }
+    release.countDown();
+    shutdown.join();
+
+    assertThat(messages(logged)).containsExactly("blocking", "first", "second").inOrder();
+    assertThat(outputInterrupted).isFalse();
+  }
+
+  @Test
+  public void testContextMetadata() {
+    AsyncLoggingStage stage = AsyncLoggingStage.create(1, 16, OverflowPolicy.BLOCK);
+    TestLogger logger = new TestLogger(stage.wrap(backend));
+    ScopedLoggingContexts.newContext()
+        .withMetadata(ID, "context")
+        .run(
+            () -> {
+              logger.atInfo().log("in context");
+              logger.atInfo().with(ID, "log site").log("with log site value");
+            });
+    logger.atInfo().log("no context");
+    stage.shutdown();
+
+    assertThat(messages(logged))
+        .containsExactly("in context", "with log site value", "no context")
+        .inOrder();
+    // Context metadata is captured by the logging thread, since the worker has no context.
+    assertThat(logged.get(0).getMetadata().findValue(ID)).isEqualTo("context");
+    // Context metadata comes first, but log site values take precedence.
+    Metadata metadata = logged.get(1).getMetadata();
+    assertThat(metadata.size()).isEqualTo(2);
+    assertThat(metadata.getValue(0)).isEqualTo("context");
+    assertThat(metadata.getValue(1)).isEqualTo("log site");
+    assertThat(metadata.findValue(ID)).isEqualTo("log site");
+    assertThat(logged.get(2).getMetadata().size()).isEqualTo(0);
+  }
+}
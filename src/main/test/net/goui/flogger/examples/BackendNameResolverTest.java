@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BackendNameResolverTest {
+  private static BackendNameResolver resolver(Map<String, String> options) {
+    return BackendNameResolver.fromOptions(options, List.of());
+  }
+
+  @Test
+  public void testNoNameMapping() {
+    BackendNameResolver resolver = resolver(Map.of());
+    assertThat(resolver.backendNameOf("com.foo.bar.Baz")).isEqualTo("com.foo.bar.Baz");
+    assertThat(resolver.backendNameOf("com.foo.bar.Baz$Inner")).isEqualTo("com.foo.bar.Baz$Inner");
+    assertThat(resolver.backendNameOf("NoPackage")).isEqualTo("NoPackage");
+  }
+
+  @Test
+  public void testTrimAndRetain() {
+    BackendNameResolver perPackage = resolver(Map.of("trim_at_least", "1"));
+    assertThat(perPackage.backendNameOf("com.foo.bar.Baz")).isEqualTo("com.foo.bar");
+    assertThat(perPackage.backendNameOf("com.foo.bar.Other")).isEqualTo("com.foo.bar");
+    assertThat(perPackage.backendNameOf("NoPackage")).isEqualTo("NoPackage");
+
+    BackendNameResolver maxDepth = resolver(Map.of("trim_at_least", "1", "retain_at_most", "2"));
+    assertThat(maxDepth.backendNameOf("com.foo.bar.Baz")).isEqualTo("com.foo");
+    assertThat(maxDepth.backendNameOf("com.Baz")).isEqualTo("com");
+
+    // Without trimming, classes in shallow packages keep their own name.
+    BackendNameResolver retainOnly = resolver(Map.of("retain_at_most", "3"));
+    assertThat(retainOnly.backendNameOf("com.foo.bar.Baz")).isEqualTo("com.foo.bar");
+    assertThat(retainOnly.backendNameOf("com.foo.Baz")).isEqualTo("com.foo.Baz");
+  }
+
+  @Test
+  public void testRoots() {
+    BackendNameResolver resolver =
+        resolver(
+            Map.of(
+                "roots.size", "3",
+                "roots.0", "com.foo",
+                "roots.1", "com.foo.bar.*",
+                "roots.2", "org.other.*.*",
+                "trim_at_least", "2"));
+    // The most specific root wins, and trimming is not applied under roots.
+    assertThat(resolver.backendNameOf("com.foo.Baz")).isEqualTo("com.foo");
+    assertThat(resolver.backendNameOf("com.foo.other.Baz")).isEqualTo("com.foo");
+    assertThat(resolver.backendNameOf("com.foo.bar.Baz")).isEqualTo("com.foo.bar");
+    assertThat(resolver.backendNameOf("com.foo.bar.x.y.Baz")).isEqualTo("com.foo.bar.x");
+    assertThat(resolver.backendNameOf("org.other.x.y.z.Baz")).isEqualTo("org.other.x.y");
+    // Not under a root, so trimming is applied.
+    assertThat(resolver.backendNameOf("com.bar.x.y.Baz")).isEqualTo("com.bar.x");
+  }
+
+  @Test
+  public void testSystemRoots() {
+    List<String> systemRoots = List.of("com.foo", "com.foo.bar.Baz");
+    BackendNameResolver resolver =
+        BackendNameResolver.fromOptions(
+            Map.of("use_system_roots", "true", "default_root_extend", "1", "trim_at_least", "1"),
+            systemRoots);
+    assertThat(resolver.backendNameOf("com.foo.Baz")).isEqualTo("com.foo");
+    assertThat(resolver.backendNameOf("com.foo.bar.x.Baz")).isEqualTo("com.foo.bar");
+    // A system root for a class gives that class its own backend.
+    assertThat(resolver.backendNameOf("com.foo.bar.Baz")).isEqualTo("com.foo.bar.Baz");
+    assertThat(resolver.backendNameOf("com.foo.bar.Other")).isEqualTo("com.foo.bar");
+
+    // System roots are ignored unless enabled.
+    BackendNameResolver ignored =
+        BackendNameResolver.fromOptions(Map.of("trim_at_least", "1"), systemRoots);
+    assertThat(ignored.backendNameOf("com.foo.bar.x.Baz")).isEqualTo("com.foo.bar.x");
+  }
+
+  @Test
+  public void testBadOptions() {
+    assertThrows(IllegalArgumentException.class, () -> resolver(Map.of("roots.size", "1")));
+    assertThrows(IllegalArgumentException.class, () -> resolver(Map.of("trim_at_least", "-1")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> resolver(Map.of("roots.size", "1", "roots.0", ".*")));
+  }
+}
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.LogSites;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import com.google.common.flogger.backend.SimpleMessageFormatter;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BinaryLogWriterTest {
+  // Keys named in formatter options are loaded reflectively, so must be public.
+  public static final MetadataKey<Integer> ID = MetadataKey.single("id", Integer.class);
+  public static final MetadataKey<String> TAG = MetadataKey.repeated("tag", String.class);
+  private static final MetadataKey<String> PATH =
+      new JoiningMetadataKey<>("path", String.class, '/');
+
+  private static final MetadataKey<BigInteger> BIG = MetadataKey.single("big", BigInteger.class);
+  // Emits a value with a new label and then fails, after the event has new definitions.
+  private static final MetadataKey<String> FAILING =
+      new MetadataKey<>("failing", String.class, false) {
+        @Override
+        protected void emit(String value, KeyValueHandler out) {
+          out.handle("partial", value);
+          throw new IllegalStateException("cannot emit: " + value);
+        }
+      };
+  private static final MetadataKey<String> PARTIAL = MetadataKey.single("partial", String.class);
+
+  private static final MessagePattern DEFAULT_PATTERN =
+      BinaryLogDecoder.patternFromOptions(Map.of());
+
+  private static final LogSite OTHER_SITE =
+      LogSites.logSiteFrom(
+          new StackTraceElement("net.goui.flogger.examples.Foo", "baz", "Foo.java", 99));
+  private static final LogSite SITE =
+      LogSites.logSiteFrom(
+          new StackTraceElement("net.goui.flogger.examples.Foo", "bar", "Foo.java", 42));
+  private static final long TIMESTAMP_NANOS = 1_700_000_000_123_456_789L;
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  /** Simple log site metadata (keys may appear more than once). */
+  private static final class TestMetadata extends Metadata {
+    private final List<MetadataKey<?>> keys = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    <T> TestMetadata add(MetadataKey<T> key, T value) {
+      keys.add(key);
+      values.add(value);
+      return this;
+    }
+
+    @Override
+    public int size() {
+      return keys.size();
+    }
+
+    @Override
+    public MetadataKey<?> getKey(int n) {
+      return keys.get(n);
+    }
+
+    @Override
+    public Object getValue(int n) {
+      return values.get(n);
+    }
+
+    @Override
+    public <T> T findValue(MetadataKey<T> key) {
+      int index = keys.indexOf(key);
+      return index >= 0 ? key.cast(values.get(index)) : null;
+    }
+  }
+
+  private record TestLogData(
+      long getTimestampNanos,
+      Metadata getMetadata,
+      LogSite getLogSite,
+      String message,
+      Object[] args)
+      implements LogData {
+    static TestLogData printf(long nanos, Metadata metadata, String message, Object... args) {
+      return new TestLogData(nanos, metadata, SITE, message, args);
+    }
+
+    static TestLogData literal(long nanos, Metadata metadata, String message) {
+      return literal(nanos, metadata, SITE, message);
+    }
+
+    static TestLogData literal(long nanos, Metadata metadata, LogSite site, String message) {
+      return new TestLogData(nanos, metadata, site, message, null);
+    }
+
+    @Override
+    public Level getLevel() {
+      return Level.INFO;
+    }
+
+    @Override
+    @Deprecated
+    public long getTimestampMicros() {
+      return getTimestampNanos / 1000;
+    }
+
+    @Override
+    public String getLoggerName() {
+      return "net.goui.flogger.examples.Foo";
+    }
+
+    @Override
+    public boolean wasForced() {
+      return false;
+    }
+
+    @Override
+    public TemplateContext getTemplateContext() {
+      return args != null
+          ? new TemplateContext(DefaultPrintfMessageParser.getInstance(), message)
+          : null;
+    }
+
+    @Override
+    public Object[] getArguments() {
+      return args;
+    }
+
+    @Override
+    public Object getLiteralArgument() {
+      return message;
+    }
+  }
+
+  private static String format(LogData data) {
+    return SimpleMessageFormatter.getDefaultFormatter()
+        .append(
+            data,
+            MetadataProcessor.forScopeAndLogSite(Metadata.empty(), data.getMetadata()),
+            new StringBuilder())
+        .toString();
+  }
+
+  private List<String> decodeAll(Path dir) throws IOException {
+    return decodeAll(dir, DEFAULT_PATTERN);
+  }
+
+  private List<String> decodeAll(Path dir, MessagePattern pattern) throws IOException {
+    List<String> lines = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path segment : files.sorted().toList()) {
+        BinaryLogDecoder.decode(segment, pattern, lines::add);
+      }
+    }
+    return lines;
+  }
+
+  @Test
+  public void testRoundTrip_sameTextAsMessageFormatter() throws IOException {
+    Path dir = tmp.newFolder().toPath();
+    List<LogData> events =
+        List.of(
+            TestLogData.printf(TIMESTAMP_NANOS, new TestMetadata(), "Task: Step %d/%d", 3, 10),
+            TestLogData.printf(
+                TIMESTAMP_NANOS + 1000,
+                new TestMetadata().add(ID, 1234).add(TAG, "foo").add(TAG, "bar"),
+                "Hex: %#x, Long: %d, Double: %.2f, Char: %c, String: %s, Other: %s",
+                -1,
+                Long.MIN_VALUE,
+                Math.PI,
+                'x',
+                "été 😀",
+                List.of(1, 2)),
+            TestLogData.literal(
+                TIMESTAMP_NANOS - 5000, new TestMetadata().add(PATH, "a").add(PATH, "b"), "100%"),
+            TestLogData.printf(
+                TIMESTAMP_NANOS + 2000,
+                new TestMetadata().add(BIG, new BigInteger("12345678901234567890")),
+                "BigInteger: %d, BigDecimal: %s",
+                BigInteger.TEN.pow(20),
+                new BigDecimal("1.50")));
+
+    try (BinaryLogWriter writer = new BinaryLogWriter(dir, "test", 1 << 16, 4)) {
+      for (LogData data : events) {
+        writer.write(data);
+      }
+    }
+
+    List<String> lines = decodeAll(dir);
+    assertThat(lines).hasSize(events.size());
+    for (int n = 0; n < lines.size(); n++) {
+      LogData data = events.get(n);
+      assertThat(lines.get(n))
+          .isEqualTo(
+              Instant.ofEpochSecond(0, data.getTimestampNanos())
+                  + " INFO [net.goui.flogger.examples.Foo#bar] "
+                  + format(data));
+    }
+    assertThat(lines.get(0)).endsWith("] Task: Step 3/10");
+    assertThat(lines.get(2)).endsWith("] 100% [CONTEXT path=\"a/b\" ]");
+    // Non-primitive numbers are decoded as numbers, so they can be formatted via %d (and are quoted
+    // in metadata, just as Flogger does for them).
+    assertThat(lines.get(3))
+        .endsWith(
+            "] BigInteger: 100000000000000000000, BigDecimal: 1.50"
+                + " [CONTEXT big=\"12345678901234567890\" ]");
+  }
+
+  @Test
+  public void testCustomPattern() throws IOException {
+    Path dir = tmp.newFolder().toPath();
+    String keyPrefix = getClass().getName() + "#";
+    MessagePattern pattern =
+        BinaryLogDecoder.patternFromOptions(
+            Map.of(
+                "pattern", "%{level} %{key.id/id=/: }%{message}%{metadata/ [/]}",
+                "metadata.key.id", keyPrefix + "ID",
+                "metadata.ignore.size", "1",
+                "metadata.ignore.0", keyPrefix + "TAG"));
+    try (BinaryLogWriter writer = new BinaryLogWriter(dir, "test", 1 << 16, 4)) {
+      writer.write(
+          TestLogData.literal(
+              TIMESTAMP_NANOS,
+              new TestMetadata().add(ID, 1234).add(TAG, "foo").add(PATH, "a").add(PATH, "b"),
+              "Message"));
+    }
+
+    // Decoded metadata is matched to the keys in the options by label.
+    assertThat(decodeAll(dir, pattern)).containsExactly("INFO id=1234: Message [path=\"a/b\"]");
+  }
+
+  @Test
+  public void testFailedEvent_laterEventsDecode() throws IOException {
+    Path dir = tmp.newFolder().toPath();
+    try (BinaryLogWriter writer = new BinaryLogWriter(dir, "test", 1 << 16, 4)) {
+      writer.write(TestLogData.literal(TIMESTAMP_NANOS, new TestMetadata(), "First"));
+      // The failed event would have defined a new log site, logger message and label.
+      LogData failed =
+          TestLogData.literal(
+              TIMESTAMP_NANOS + 1, new TestMetadata().add(FAILING, "x"), OTHER_SITE, "Failed");
+      assertThrows(IllegalStateException.class, () -> writer.write(failed));
+      writer.write(
+          TestLogData.literal(
+              TIMESTAMP_NANOS + 2, new TestMetadata().add(PARTIAL, "y"), OTHER_SITE, "Failed"));
+    }
+
+    assertThat(decodeAll(dir))
+        .containsExactly(
+            Instant.ofEpochSecond(0, TIMESTAMP_NANOS)
+                + " INFO [net.goui.flogger.examples.Foo#bar] First",
+            Instant.ofEpochSecond(0, TIMESTAMP_NANOS + 2)
+                + " INFO [net.goui.flogger.examples.Foo#baz] Failed [CONTEXT partial=\"y\" ]")
+        .inOrder();
+  }
+
+  @Test
+  public void testCause() throws IOException {
+    Path dir = tmp.newFolder().toPath();
+    Metadata metadata =
+        new TestMetadata().add(LogContext.Key.LOG_CAUSE, new IllegalStateException("Oops"));
+    try (BinaryLogWriter writer = new BinaryLogWriter(dir, "test", 1 << 16, 4)) {
+      writer.write(TestLogData.literal(TIMESTAMP_NANOS, metadata, "Failed"));
+    }
+
+    List<String> lines = decodeAll(dir);
+    assertThat(lines).hasSize(1);
+    assertThat(lines.get(0)).contains("] Failed\njava.lang.IllegalStateException: Oops\n");
+  }
+
+  @Test
+  public void testSegmentRotation() throws IOException {
+    Path dir = tmp.newFolder().toPath();
+    int eventCount = 1000;
+    try (BinaryLogWriter writer = new BinaryLogWriter(dir, "test", 1024, 3)) {
+      for (int n = 0; n < eventCount; n++) {
+        writer.write(
+            TestLogData.printf(TIMESTAMP_NANOS + n, new TestMetadata(), "Task: Step %d/%d", n, 10));
+      }
+    }
+
+    try (Stream<Path> files = Files.list(dir)) {
+      assertThat(files.count()).isEqualTo(3);
+    }
+    // Each segment is decodable on its own, and the newest segments are retained.
+    List<String> lines = decodeAll(dir);
+    assertThat(lines.size()).isLessThan(eventCount);
+    assertThat(lines.get(lines.size() - 1)).endsWith("] Task: Step 999/10");
+    // Repeated events refer to the log site and format string by id (~16 bytes per event here).
+    int expectedMaxBytesPerEvent = 20;
+    assertThat(lines.size()).isGreaterThan(2 * 1024 / expectedMaxBytesPerEvent);
+  }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BoundedBucketingStrategyTest {
+  @Test
+  public void testSameKeySameBucket() {
+    BoundedBucketingStrategy<String> strategy = new BoundedBucketingStrategy<>("test", 4, 1);
+    Object foo = strategy.apply("foo");
+    Object bar = strategy.apply("bar");
+
+    assertThat(bar).isNotSameInstanceAs(foo);
+    assertThat(strategy.apply("foo")).isSameInstanceAs(foo);
+    assertThat(foo.toString()).isEqualTo("foo");
+    assertThat(strategy.getEvictedKeyCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedKeyIsEvicted() {
+    BoundedBucketingStrategy<String> strategy = new BoundedBucketingStrategy<>("test", 2, 1);
+    Object foo = strategy.apply("foo");
+    Object bar = strategy.apply("bar");
+    // Using "foo" again makes "bar" the least recently used key.
+    strategy.apply("foo");
+
+    Object baz = strategy.apply("baz");
+    assertThat(strategy.getEvictedKeyCount()).isEqualTo(1);
+    // The evicted key's bucket is reused (so the number of buckets is bounded).
+    assertThat(baz).isSameInstanceAs(bar);
+    assertThat(baz.toString()).isEqualTo("baz");
+    assertThat(strategy.apply("foo")).isSameInstanceAs(foo);
+  }
+
+  @Test
+  public void testBucketCountIsBounded_concurrent() throws InterruptedException {
+    int maxKeys = 64;
+    BoundedBucketingStrategy<Integer> strategy = new BoundedBucketingStrategy<>("test", maxKeys, 4);
+    Set<Object> buckets = ConcurrentHashMap.newKeySet();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int t = 0; t < 8; t++) {
+      int seed = t;
+      executor.execute(
+          () -> {
+            Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int n = 0; n < 10_000; n++) {
+              seen.add(strategy.apply((n * 31 + seed) % 1000));
+            }
+            buckets.addAll(seen);
+          });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, SECONDS)).isTrue();
+
+    // Buckets use identity equality, so the set counts distinct bucket instances.
+    assertThat(buckets.size()).isAtMost(maxKeys);
+    assertThat(strategy.getEvictedKeyCount()).isGreaterThan(0);
+  }
+}
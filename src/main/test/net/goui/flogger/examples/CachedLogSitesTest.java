@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.LogSites;
+import com.google.common.flogger.backend.LogData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CachedLogSitesTest {
+  @Test
+  public void testLogSite_sameAsFlogger() {
+    // Both log sites must be determined on the same line to be equal.
+    LogSite[] sites = {CachedLogSites.callerLogSite(0), LogSites.logSite()};
+    assertThat(sites[0]).isEqualTo(sites[1]);
+    assertThat(sites[0].getMethodName()).isEqualTo("testLogSite_sameAsFlogger");
+    assertThat(sites[0].getClassName()).isEqualTo(CachedLogSitesTest.class.getName());
+
+    // Log sites in lambdas have the synthetic method name of the lambda body.
+    Supplier<LogSite[]> lambda =
+        () -> new LogSite[] {CachedLogSites.callerLogSite(0), LogSites.logSite()};
+    LogSite[] lambdaSites = lambda.get();
+    assertThat(lambdaSites[0]).isEqualTo(lambdaSites[1]);
+    assertThat(lambdaSites[0].getMethodName()).startsWith("lambda$testLogSite_sameAsFlogger$");
+  }
+
+  @Test
+  public void testLogSite_cached() {
+    LogSite[] sites = new LogSite[3];
+    for (int n = 0; n < sites.length; n++) {
+      sites[n] = CachedLogSites.callerLogSite(0);
+    }
+    assertThat(sites[1]).isSameInstanceAs(sites[0]);
+    assertThat(sites[2]).isSameInstanceAs(sites[0]);
+
+    // Different call site (on a different line).
+    LogSite other = CachedLogSites.callerLogSite(0);
+    assertThat(other).isNotEqualTo(sites[0]);
+    assertThat(other.getLineNumber()).isNotEqualTo(sites[0].getLineNumber());
+  }
+
+  private static final CachedLogSites.LazyLogSite LAZY_LOG_SITE = CachedLogSites.lazyLogSite();
+
+  @Test
+  public void testWithLogSite_resolvedOnFirstEnabledUse() {
+    List<LogData> logged = new ArrayList<>();
+    TestLogger logger = new TestLogger(TestLogger.recording(Level.INFO, logged::add));
+    int expectedLine = 0;
+    for (int n = 0; n < 3; n++) {
+      // Disabled statements do not resolve the log site.
+      CachedLogSites.withLogSite(logger.atFine(), LAZY_LOG_SITE).log("Disabled");
+      expectedLine = LogSites.logSite().getLineNumber() + 1;
+      CachedLogSites.withLogSite(logger.atInfo(), LAZY_LOG_SITE).log("Enabled");
+    }
+
+    assertThat(logged).hasSize(3);
+    LogSite logSite = logged.get(0).getLogSite();
+    assertThat(logSite.getMethodName()).isEqualTo("testWithLogSite_resolvedOnFirstEnabledUse");
+    assertThat(logSite.getLineNumber()).isEqualTo(expectedLine);
+    assertThat(logged.get(1).getLogSite()).isSameInstanceAs(logSite);
+    assertThat(logged.get(2).getLogSite()).isSameInstanceAs(logSite);
+  }
+}
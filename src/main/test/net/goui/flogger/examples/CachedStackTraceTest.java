@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.flogger.StackSize.FULL;
+import static com.google.common.flogger.StackSize.NONE;
+import static com.google.common.flogger.StackSize.SMALL;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.StackSize;
+import com.google.common.flogger.backend.LogData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CachedStackTraceTest {
+  private static CachedStackTrace captureIn(StackSize size) {
+    return CachedStackTrace.callerStackTrace(size, 0);
+  }
+
+  @Test
+  public void testCapture() {
+    CachedStackTrace trace = captureIn(SMALL);
+    StackTraceElement[] frames = trace.getStackTrace();
+
+    assertThat(trace).hasMessageThat().isEqualTo("SMALL");
+    assertThat(trace).hasCauseThat().isNull();
+    assertThat(frames).hasLength(10);
+    assertThat(frames[0].getMethodName()).isEqualTo("captureIn");
+    assertThat(frames[1].getMethodName()).isEqualTo("testCapture");
+    // A full stack trace has the same frames as one captured via a throwable.
+    StackTraceElement[] expected = new Throwable().getStackTrace();
+    StackTraceElement[] full = CachedStackTrace.callerStackTrace(FULL, 0).getStackTrace();
+    // Skip the first frame, since the line numbers differ.
+    assertThat(Arrays.asList(full).subList(1, full.length))
+        .isEqualTo(Arrays.asList(expected).subList(1, expected.length));
+  }
+
+  @Test
+  public void testSameCallPath_sharesTrace() {
+    CachedStackTrace[] traces = new CachedStackTrace[3];
+    for (int n = 0; n < traces.length; n++) {
+      traces[n] = captureIn(SMALL);
+    }
+    assertThat(traces[1]).isSameInstanceAs(traces[0]);
+    assertThat(traces[2]).isSameInstanceAs(traces[0]);
+
+    // Different call path (called from a different line).
+    CachedStackTrace other = captureIn(SMALL);
+    assertThat(other).isNotSameInstanceAs(traces[0]);
+    assertThat(other.getStackTrace()[1].getLineNumber())
+        .isNotEqualTo(traces[0].getStackTrace()[1].getLineNumber());
+  }
+
+  @Test
+  public void testCaptureViaApi() {
+    List<LogData> logged = new ArrayList<>();
+    TestLogger logger = new TestLogger(TestLogger.recording(Level.INFO, logged::add));
+
+    // Disabled statements (and NONE) are returned unchanged, without capturing anything.
+    TestLogger.Api disabled = logger.atFine();
+    assertThat(CachedStackTrace.capture(disabled, SMALL)).isSameInstanceAs(disabled);
+    TestLogger.Api enabled = logger.atInfo();
+    assertThat(CachedStackTrace.capture(enabled, NONE)).isSameInstanceAs(enabled);
+
+    CachedStackTrace.capture(logger.atInfo(), SMALL).log("With stack trace");
+    assertThat(logged).hasSize(1);
+    Throwable cause = logged.get(0).getMetadata().findValue(LogContext.Key.LOG_CAUSE);
+    assertThat(cause).isInstanceOf(CachedStackTrace.class);
+    assertThat(cause.getStackTrace()[0].getMethodName()).isEqualTo("testCaptureViaApi");
+  }
+
+  @Test
+  public void testImmutable() {
+    CachedStackTrace trace = captureIn(SMALL);
+    trace.addSuppressed(new RuntimeException());
+    assertThat(trace.getSuppressed()).isEmpty();
+    assertThrows(IllegalStateException.class, () -> trace.initCause(new RuntimeException()));
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> trace.setStackTrace(new StackTraceElement[0]));
+    assertThat(trace.getStackTrace()).hasLength(10);
+  }
+}
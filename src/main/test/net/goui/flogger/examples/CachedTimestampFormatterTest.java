@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CachedTimestampFormatterTest {
+  // 2024-03-31 00:59:58 UTC, shortly before a daylight saving change in Europe.
+  private static final long START_NANOS = 1_711_846_798_000_000_000L;
+  private static final ZoneId ZONE = ZoneId.of("Europe/London");
+
+  private static void assertSameOutput(DateTimeFormatter formatter, long... timestamps) {
+    CachedTimestampFormatter cached = CachedTimestampFormatter.of(formatter);
+    StringBuilder out = new StringBuilder();
+    for (long nanos : timestamps) {
+      out.setLength(0);
+      String expected = formatter.format(Instant.ofEpochSecond(0, nanos));
+      assertWithMessage("timestamp: %s", nanos)
+          .that(cached.appendTo(nanos, out).toString())
+          .isEqualTo(expected);
+    }
+  }
+
+  // Timestamps over several seconds (including whole seconds and exact milliseconds).
+  private static long[] timestamps() {
+    Random random = new Random(42);
+    long[] timestamps = new long[1000];
+    for (int n = 0; n < timestamps.length; n++) {
+      long nanos = START_NANOS + random.nextLong(5_000_000_000L);
+      switch (n % 4) {
+        case 0 -> nanos -= nanos % 1_000_000_000;
+        case 1 -> nanos -= nanos % 1_000_000;
+        case 2 -> nanos -= nanos % 1_000;
+        default -> {}
+      }
+      timestamps[n] = nanos;
+    }
+    return timestamps;
+  }
+
+  @Test
+  public void testIsoInstant() {
+    assertSameOutput(DateTimeFormatter.ISO_INSTANT, timestamps());
+    assertSameOutput(DateTimeFormatter.ISO_INSTANT, 0, 1, 1_000, 1_000_000, -1);
+  }
+
+  @Test
+  public void testPatterns() {
+    for (String pattern :
+        new String[] {
+          "yyyy-MM-dd HH:mm:ss.SSS",
+          "HH:mm:ss.SSSSSSSSS xxx",
+          "HH:mm:ss,SS z",
+          "EEE HH:mm:ss",
+          "ss.S a VV",
+        }) {
+      assertSameOutput(DateTimeFormatter.ofPattern(pattern).withZone(ZONE), timestamps());
+    }
+  }
+
+  @Test
+  public void testUncachedPatterns() {
+    // Fraction digits which are not fixed width, or which appear more than once.
+    for (String pattern : new String[] {"HH:mm:ss.n", "ss.SSS (SSS)", "A"}) {
+      assertSameOutput(DateTimeFormatter.ofPattern(pattern).withZone(ZONE), timestamps());
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Collections.nCopies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import io.grpc.Context;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GrpcPropagatingExecutorServiceTest {
+  private static final Context.Key<String> REQUEST = Context.key("request");
+
+  private final ListeningExecutorService service =
+      GrpcPropagatingExecutorService.wrap(Executors.newFixedThreadPool(4));
+
+  @After
+  public void shutdown() {
+    service.shutdownNow();
+  }
+
+  private static List<Callable<String>> requestTasks(int count) {
+    List<Callable<String>> tasks = new ArrayList<>();
+    for (int n = 0; n < count; n++) {
+      tasks.add(REQUEST::get);
+    }
+    return tasks;
+  }
+
+  @Test
+  public void testSubmitAll() throws Exception {
+    Context context = Context.current().withValue(REQUEST, "request1");
+    ImmutableList<ListenableFuture<String>> futures =
+        context.call(() -> GrpcPropagatingExecutorService.submitAll(service, requestTasks(100)));
+    assertThat(Futures.allAsList(futures).get()).isEqualTo(nCopies(100, "request1"));
+
+    // Tasks submitted from the root context see no context values.
+    futures = GrpcPropagatingExecutorService.submitAll(service, requestTasks(10));
+    assertThat(Futures.allAsList(futures).get()).isEqualTo(nCopies(10, null));
+  }
+
+  @Test
+  public void testSubmitAllRestoresContext() {
+    Context context = Context.current().withValue(REQUEST, "request1");
+    AtomicReference<Context> afterSubmit = new AtomicReference<>();
+    context.run(
+        () -> {
+          GrpcPropagatingExecutorService.submitAll(service, requestTasks(1));
+          afterSubmit.set(Context.current());
+        });
+    assertThat(afterSubmit.get()).isSameInstanceAs(context);
+  }
+
+  @Test
+  public void testSubmit() throws Exception {
+    Context context = Context.current().withValue(REQUEST, "request2");
+    Callable<String> task = REQUEST::get;
+    ListenableFuture<String> future = context.call(() -> service.submit(task));
+    assertThat(future.get()).isEqualTo("request2");
+    assertThat(service.submit(task).get()).isNull();
+  }
+}
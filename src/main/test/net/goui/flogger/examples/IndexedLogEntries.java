@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Comparator.comparingInt;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.goui.flogger.testing.LevelClass;
+import net.goui.flogger.testing.LogEntry;
+import net.goui.flogger.testing.truth.LogsSubject;
+
+/**
+ * An index of captured log entries for tests which capture very many logs and make many queries.
+ *
+ * <p>The matchers used with {@code FloggerTestRule} (e.g. {@code after(entry).inSameThread()}) each
+ * scan every captured entry. The capture store of the rule cannot be replaced, so instead this
+ * class indexes a snapshot of the captured entries by thread, level, method and metadata, with
+ * each entry's position in the snapshot acting as its sequence number for ordering. A query
+ * intersects the sorted index lists it needs, so its cost depends on the size of its smallest
+ * index list rather than the number of captured entries.
+ *
+ * <pre>{@code
+ * IndexedLogEntries index = IndexedLogEntries.of(logs.assertLogs().getAllMatches());
+ * LogsSubject.assertThat(index.query().after(taskStart).inSameThreadAs(taskStart).get())
+ *     .always()
+ *     .haveMetadata(TASK_TAG, taskName);
+ * }</pre>
+ *
+ * <p>Metadata values are matched in the same way as {@link LogEntry#hasMetadata(String, Object)}:
+ * numbers by numeric value (so {@code 42} matches {@code 42L}), booleans by equality, and anything
+ * else by its string representation. Floating point values are matched approximately, so cannot be
+ * indexed, and are matched by testing each entry which has the metadata key.
+ *
+ * <p>Query results can be passed to {@link LogsSubject#assertThat(ImmutableList)} for further
+ * assertions. Indexing is done once, in time proportional to the number of entries multiplied by
+ * the number of distinct threads (since thread IDs are only visible via {@link
+ * LogEntry#hasSameThreadAs(LogEntry)}).
+ */
+final class IndexedLogEntries {
+  /** Returns an index of the given entries, which must be in the order they were captured. */
+  static IndexedLogEntries of(List<LogEntry> entries) {
+    return new IndexedLogEntries(ImmutableList.copyOf(entries));
+  }
+
+  private static final int[] NONE = new int[0];
+
+  private final ImmutableList<LogEntry> entries;
+  // Log entries have identity semantics, so this is effectively an identity map.
+  private final Map<LogEntry, Integer> sequence = new HashMap<>();
+  private final int[] threadIds;
+  private final Map<Integer, int[]> byThread;
+  private final Map<LevelClass, int[]> byLevel;
+  private final Map<String, int[]> byMethod;
+  private final Map<String, int[]> byMetadataKey;
+  // Keyed by normalized value (see normalize()).
+  private final Map<Map.Entry<String, Object>, int[]> byMetadataValue;
+
+  private IndexedLogEntries(ImmutableList<LogEntry> entries) {
+    this.entries = entries;
+    this.threadIds = new int[entries.size()];
+    List<LogEntry> threadRepresentatives = new ArrayList<>();
+    Map<Integer, List<Integer>> threads = new HashMap<>();
+    Map<LevelClass, List<Integer>> levels = new HashMap<>();
+    Map<String, List<Integer>> methods = new HashMap<>();
+    Map<String, List<Integer>> keys = new HashMap<>();
+    Map<Map.Entry<String, Object>, List<Integer>> values = new HashMap<>();
+    for (int n = 0; n < entries.size(); n++) {
+      LogEntry entry = entries.get(n);
+      checkArgument(sequence.put(entry, n) == null, "duplicate log entry: %s", entry);
+      threadIds[n] = threadIdOf(entry, threadRepresentatives);
+      add(threads, threadIds[n], n);
+      add(levels, entry.levelClass(), n);
+      add(methods, methodOf(entry), n);
+      for (Map.Entry<String, ImmutableList<Object>> e : entry.metadata().entrySet()) {
+        add(keys, e.getKey(), n);
+        for (Object value : e.getValue()) {
+          add(values, Map.entry(e.getKey(), normalize(value)), n);
+        }
+      }
+    }
+    this.byThread = toArrays(threads);
+    this.byLevel = toArrays(levels);
+    this.byMethod = toArrays(methods);
+    this.byMetadataKey = toArrays(keys);
+    this.byMetadataValue = toArrays(values);
+  }
+
+  private static int threadIdOf(LogEntry entry, List<LogEntry> threadRepresentatives) {
+    for (int id = 0; id < threadRepresentatives.size(); id++) {
+      if (threadRepresentatives.get(id).hasSameThreadAs(entry)) {
+        return id;
+      }
+    }
+    threadRepresentatives.add(entry);
+    return threadRepresentatives.size() - 1;
+  }
+
+  // Returns a value which is equal for any two values which LogEntry#hasMetadata would match
+  // (except for floating point values, which are never looked up in the index).
+  private static Object normalize(Object value) {
+    if (value instanceof Number n) {
+      BigDecimal decimal =
+          switch (n) {
+            case BigDecimal d -> d;
+            case BigInteger i -> new BigDecimal(i);
+            case Double d when d.isNaN() || d.isInfinite() -> null;
+            case Float f when f.isNaN() || f.isInfinite() -> null;
+            case Double d -> BigDecimal.valueOf(d);
+            case Float f -> BigDecimal.valueOf(f.doubleValue());
+            default -> BigDecimal.valueOf(n.longValue());
+          };
+      // Non-finite values cannot equal any number which can be looked up.
+      return decimal != null ? decimal.stripTrailingZeros() : n;
+    }
+    return value instanceof Boolean ? value : value.toString();
+  }
+
+  private static String methodOf(LogEntry entry) {
+    return entry.className() + "#" + entry.methodName();
+  }
+
+  private static <K> void add(Map<K, List<Integer>> index, K key, int n) {
+    index.computeIfAbsent(key, k -> new ArrayList<>()).add(n);
+  }
+
+  private static <K> Map<K, int[]> toArrays(Map<K, List<Integer>> index) {
+    Map<K, int[]> arrays = new HashMap<>();
+    // Entries are added in sequence order, so each array is already sorted.
+    index.forEach((key, list) -> arrays.put(key, Ints.toArray(list)));
+    return arrays;
+  }
+
+  /** Starts a query which matches all indexed entries, until restricted. */
+  Query query() {
+    return new Query();
+  }
+
+  /** A conjunction of restrictions on indexed entries. */
+  final class Query {
+    private final List<int[]> indices = new ArrayList<>();
+    // The range of sequence numbers to match (start inclusive, end exclusive).
+    private int start = 0;
+    private int end = entries.size();
+
+    private Query() {}
+
+    /** Restricts the query to entries captured after the given entry. */
+    Query after(LogEntry entry) {
+      start = Math.max(start, sequenceOf(entry) + 1);
+      return this;
+    }
+
+    /** Restricts the query to entries captured before the given entry. */
+    Query before(LogEntry entry) {
+      end = Math.min(end, sequenceOf(entry));
+      return this;
+    }
+
+    /** Restricts the query to entries logged in the same thread as the given entry. */
+    Query inSameThreadAs(LogEntry entry) {
+      return restrict(byThread, threadIds[sequenceOf(entry)]);
+    }
+
+    /** Restricts the query to entries logged from the same class and method as the given entry. */
+    Query fromSameMethodAs(LogEntry entry) {
+      return restrict(byMethod, methodOf(entry));
+    }
+
+    /** Restricts the query to entries with the given level. */
+    Query withLevel(LevelClass level) {
+      return restrict(byLevel, level);
+    }
+
+    /** Restricts the query to entries with at least one metadata value for the given key. */
+    Query withMetadataKey(String key) {
+      return restrict(byMetadataKey, key);
+    }
+
+    /** Restricts the query to entries with a metadata value for the given key which matches. */
+    Query withMetadata(String key, Object value) {
+      checkNotNull(value, "value must not be null (did you mean 'withMetadataKey(...)'?)");
+      if (value instanceof Double || value instanceof Float) {
+        int[] withKey = byMetadataKey.getOrDefault(key, NONE);
+        indices.add(
+            Arrays.stream(withKey).filter(n -> entries.get(n).hasMetadata(key, value)).toArray());
+        return this;
+      }
+      return restrict(byMetadataValue, Map.entry(key, normalize(value)));
+    }
+
+    private <K> Query restrict(Map<K, int[]> index, K key) {
+      indices.add(index.getOrDefault(key, NONE));
+      return this;
+    }
+
+    private int sequenceOf(LogEntry entry) {
+      Integer n = sequence.get(entry);
+      checkArgument(n != null, "log entry is not in this index: %s", entry);
+      return n;
+    }
+
+    /** Returns the matching entries in the order they were captured. */
+    ImmutableList<LogEntry> get() {
+      if (indices.isEmpty()) {
+        return start < end ? entries.subList(start, end) : ImmutableList.of();
+      }
+      // Walk the shortest index list (within the sequence range) and look up the others.
+      indices.sort(comparingInt(a -> a.length));
+      int[] shortest = indices.get(0);
+      ImmutableList.Builder<LogEntry> matches = ImmutableList.builder();
+      int to = insertionPoint(shortest, end);
+      for (int i = insertionPoint(shortest, start); i < to; i++) {
+        if (isInOtherIndices(shortest[i])) {
+          matches.add(entries.get(shortest[i]));
+        }
+      }
+      return matches.build();
+    }
+
+    private boolean isInOtherIndices(int n) {
+      for (int i = 1; i < indices.size(); i++) {
+        if (Arrays.binarySearch(indices.get(i), n) < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int insertionPoint(int[] sorted, int n) {
+      int index = Arrays.binarySearch(sorted, n);
+      return index >= 0 ? index : ~index;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static net.goui.flogger.testing.LevelClass.FINE;
+import static net.goui.flogger.testing.LevelClass.INFO;
+import static net.goui.flogger.testing.truth.LogMatcher.after;
+import static net.goui.flogger.testing.truth.LogMatcher.before;
+import static net.goui.flogger.testing.truth.LogMatcher.fromSameMethodAs;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+import net.goui.flogger.testing.LevelClass;
+import net.goui.flogger.testing.LogEntry;
+import net.goui.flogger.testing.truth.LogsSubject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class IndexedLogEntriesTest {
+  private static final String TASK_TAG = "task";
+
+  private static ImmutableList<LogEntry> randomEntries(int count) {
+    Random random = new Random(42);
+    ImmutableList.Builder<LogEntry> entries = ImmutableList.builder();
+    for (int n = 0; n < count; n++) {
+      entries.add(
+          LogEntry.of(
+              "com.example.Task",
+              random.nextBoolean() ? "run" : "pause",
+              "",
+              random.nextBoolean() ? INFO : FINE,
+              Instant.ofEpochSecond(n),
+              "thread-" + random.nextInt(4),
+              "Message " + n,
+              ImmutableMap.of(TASK_TAG, ImmutableList.of("task" + random.nextInt(3))),
+              null));
+    }
+    return entries.build();
+  }
+
+  private static ImmutableList<LogEntry> unindexed(
+      ImmutableList<LogEntry> entries, UnaryOperator<LogsSubject> query) {
+    return query.apply(LogsSubject.assertThat(entries)).allowingNoMatches().getAllMatches();
+  }
+
+  @Test
+  public void testQueries_sameAsMatchers() {
+    ImmutableList<LogEntry> entries = randomEntries(1000);
+    IndexedLogEntries index = IndexedLogEntries.of(entries);
+    LogEntry first = entries.get(0);
+    LogEntry middle = entries.get(500);
+
+    assertThat(index.query().get()).isEqualTo(entries);
+    assertThat(index.query().after(middle).inSameThreadAs(middle).get())
+        .isEqualTo(unindexed(entries, s -> s.matching(after(middle).inSameThread())));
+    assertThat(index.query().before(middle).inSameThreadAs(middle).get())
+        .isEqualTo(unindexed(entries, s -> s.matching(before(middle).inSameThread())));
+    assertThat(index.query().after(first).before(middle).withLevel(FINE).get())
+        .isEqualTo(
+            unindexed(entries, s -> s.matching(after(first), before(middle)).withLevel(FINE)));
+    assertThat(index.query().fromSameMethodAs(middle).withMetadata(TASK_TAG, "task1").get())
+        .isEqualTo(
+            unindexed(
+                entries,
+                s -> s.matching(fromSameMethodAs(middle)).withMetadata(TASK_TAG, "task1")));
+  }
+
+  @Test
+  public void testQueries_metadataValuesMatchedLikeMatchers() {
+    ImmutableList<Object> values =
+        ImmutableList.of(42, 42L, "42", 42.0, new BigDecimal("42.00"), 43L, true, "true");
+    ImmutableList.Builder<LogEntry> builder = ImmutableList.builder();
+    for (int n = 0; n < values.size(); n++) {
+      builder.add(
+          LogEntry.of(
+              "com.example.Task",
+              "run",
+              "",
+              INFO,
+              Instant.ofEpochSecond(n),
+              "thread",
+              "Message " + n,
+              ImmutableMap.of("id", ImmutableList.of(values.get(n))),
+              null));
+    }
+    ImmutableList<LogEntry> entries = builder.build();
+    IndexedLogEntries index = IndexedLogEntries.of(entries);
+
+    // Integer 42 matches any numeric value equal to 42 (including 42L).
+    assertThat(index.query().withMetadata("id", 42).get())
+        .containsExactly(entries.get(0), entries.get(1), entries.get(3), entries.get(4))
+        .inOrder();
+    for (Object value : values) {
+      assertThat(index.query().withMetadata("id", value).get())
+          .isEqualTo(unindexed(entries, s -> s.withMetadata("id", value)));
+    }
+  }
+
+  @Test
+  public void testQueries_noMatches() {
+    ImmutableList<LogEntry> entries = randomEntries(100);
+    IndexedLogEntries index = IndexedLogEntries.of(entries);
+
+    assertThat(index.query().before(entries.get(0)).get()).isEmpty();
+    assertThat(index.query().withLevel(LevelClass.SEVERE).get()).isEmpty();
+    assertThat(index.query().withMetadataKey("other").get()).isEmpty();
+    assertThat(index.query().after(entries.get(10)).before(entries.get(5)).get()).isEmpty();
+  }
+
+  @Test
+  public void testQueries_unknownEntry() {
+    IndexedLogEntries index = IndexedLogEntries.of(randomEntries(10));
+    LogEntry other = randomEntries(1).get(0);
+    assertThrows(IllegalArgumentException.class, () -> index.query().after(other));
+  }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.backend.system.BackendFactory;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class InstrumentedBackendFactoryTest {
+  /** A backend factory whose backends are enabled at INFO and above, and discard everything. */
+  private static final BackendFactory DISCARDING_FACTORY =
+      new BackendFactory() {
+        @Override
+        public LoggerBackend create(String loggingClassName) {
+          return new LoggerBackend() {
+            @Override
+            public String getLoggerName() {
+              return loggingClassName;
+            }
+
+            @Override
+            public boolean isLoggable(Level level) {
+              return level.intValue() >= Level.INFO.intValue();
+            }
+
+            @Override
+            public void log(LogData data) {}
+
+            @Override
+            public void handleError(RuntimeException error, LogData badData) {
+              throw error;
+            }
+          };
+        }
+      };
+
+  @Test
+  public void testCounts() {
+    InstrumentedBackendFactory factory =
+        new InstrumentedBackendFactory(DISCARDING_FACTORY, /* countBytes= */ true);
+    TestLogger logger = new TestLogger(factory.create("com.example.Foo"));
+
+    for (int n = 0; n < 10; n++) {
+      logger.at(Level.FINE).log("Disabled");
+      logger.at(Level.INFO).every(3).log("Hello %s", "World");
+    }
+    logger.forceAt(Level.FINE).log("Forced");
+
+    assertThat(factory.getLevelCheckCounts()).containsExactly("com.example.Foo", 20L);
+    assertThat(factory.getEnabledCheckCounts()).containsExactly("com.example.Foo", 10L);
+
+    assertThat(factory.getLogSiteStats()).hasSize(2);
+    // Busiest site first.
+    LogSiteStats everyN = factory.getLogSiteStats().get(0);
+    assertThat(everyN.getLogSite()).contains("InstrumentedBackendFactoryTest.testCounts");
+    // Calls 0, 3, 6 and 9 are emitted, and the 6 calls between them suppressed.
+    assertThat(everyN.getEmittedCount()).isEqualTo(4);
+    assertThat(everyN.getSuppressedCount()).isEqualTo(6);
+    assertThat(everyN.getEnabledCount()).isEqualTo(10);
+    assertThat(everyN.getForcedCount()).isEqualTo(0);
+    assertThat(everyN.getEmittedBytes()).isEqualTo(4 * "Hello World".length());
+
+    LogSiteStats forced = factory.getLogSiteStats().get(1);
+    assertThat(forced.getEmittedCount()).isEqualTo(1);
+    assertThat(forced.getForcedCount()).isEqualTo(1);
+
+    factory.reset();
+    assertThat(factory.getLogSiteStats()).isEmpty();
+    assertThat(factory.getLevelCheckCounts()).containsExactly("com.example.Foo", 0L);
+  }
+
+  @Test
+  public void testExportedViaJmx() throws Exception {
+    InstrumentedBackendFactory factory =
+        new InstrumentedBackendFactory(DISCARDING_FACTORY, /* countBytes= */ false);
+    TestLogger logger = new TestLogger(factory.create("com.example.Bar"));
+    logger.at(Level.INFO).log("Hello World");
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("net.goui.flogger.examples:type=LogStats,name=test");
+    server.registerMBean(factory, name);
+    try {
+      CompositeData[] sites = (CompositeData[]) server.getAttribute(name, "LogSiteStats");
+      assertThat(sites).hasLength(1);
+      assertThat(sites[0].get("emittedCount")).isEqualTo(1L);
+      // Messages are not formatted again to count bytes unless requested.
+      assertThat(sites[0].get("emittedBytes")).isEqualTo(0L);
+      TabularData checks = (TabularData) server.getAttribute(name, "LevelCheckCounts");
+      CompositeData row = checks.get(new Object[] {"com.example.Bar"});
+      assertThat(row.get("value")).isEqualTo(1L);
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class JoiningMetadataKeyTest {
+  private static final JoiningMetadataKey<String> KEY =
+      new JoiningMetadataKey<>("custom", String.class, '/');
+
+  /** A handler which formats metadata into a reusable buffer (as a garbage-free backend might). */
+  private static final class BufferingHandler implements CharSequenceKeyValueHandler {
+    final StringBuilder out = new StringBuilder(256);
+
+    @Override
+    public void handle(String label, Object value) {
+      out.append(label).append('=').append(value);
+    }
+
+    @Override
+    public void handleTransient(String label, CharSequence value) {
+      out.append(label).append('=').append(value);
+    }
+  }
+
+  /** A reusable iterator over a fixed array of values (iterator allocation is not being tested). */
+  private static final class ArrayIterator implements Iterator<String> {
+    private final String[] values;
+    private int index = 0;
+
+    ArrayIterator(String... values) {
+      this.values = values;
+    }
+
+    ArrayIterator reset() {
+      index = 0;
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < values.length;
+    }
+
+    @Override
+    public String next() {
+      return values[index++];
+    }
+  }
+
+  @Test
+  public void testJoinedValue_anyHandler() {
+    List<Object> values = new ArrayList<>();
+    KEY.safeEmitRepeated(ImmutableList.of("foo", "bar").iterator(), (k, v) -> values.add(v));
+    assertThat(values).containsExactly("foo/bar");
+  }
+
+  @Test
+  public void testJoinedValue_charSequenceHandler() {
+    BufferingHandler handler = new BufferingHandler();
+    KEY.safeEmitRepeated(ImmutableList.of("foo", "bar", "baz").iterator(), handler);
+    assertThat(handler.out.toString()).isEqualTo("custom=foo/bar/baz");
+  }
+
+  @Test
+  public void testNoAllocationPerEvent() {
+    com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    BufferingHandler handler = new BufferingHandler();
+    ArrayIterator values = new ArrayIterator("tenant", "request", "item");
+
+    int eventCount = 100_000;
+    // Warm up (sizes the buffers and lets the JIT compile the emit path).
+    for (int n = 0; n < eventCount; n++) {
+      handler.out.setLength(0);
+      KEY.safeEmitRepeated(values.reset(), handler);
+    }
+    long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+    for (int n = 0; n < eventCount; n++) {
+      handler.out.setLength(0);
+      KEY.safeEmitRepeated(values.reset(), handler);
+    }
+    long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+    assertThat(handler.out.toString()).isEqualTo("custom=tenant/request/item");
+    // Allow for a small fixed overhead from the measurement itself, but nothing per event.
+    assertThat(allocatedBytes).isLessThan(1024L);
+  }
+}
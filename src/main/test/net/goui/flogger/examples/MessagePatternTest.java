@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataProcessor;
+import com.google.common.flogger.backend.SimpleMessageFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessagePatternTest {
+  // Keys are loaded reflectively, so must be public.
+  public static final MetadataKey<Integer> TASK = MetadataKey.single("task", Integer.class);
+  public static final MetadataKey<String> USER = MetadataKey.single("user", String.class);
+  public static final MetadataKey<Boolean> DEBUG = MetadataKey.single("debug", Boolean.class);
+  private static final MetadataKey<Double> RATIO = MetadataKey.single("ratio", Double.class);
+  private static final MetadataKey<Thread.State> STATE =
+      MetadataKey.single("state", Thread.State.class);
+  private static final MetadataKey<String> PATH =
+      new JoiningMetadataKey<>("path", String.class, '/');
+
+  private static final String KEY_PREFIX = MessagePatternTest.class.getName() + "#";
+
+  private final List<LogData> logged = new ArrayList<>();
+  private final TestLogger logger = new TestLogger(TestLogger.recording(logged));
+
+  private static String format(MessagePattern pattern, LogData data) {
+    MetadataProcessor metadata =
+        MetadataProcessor.forScopeAndLogSite(Metadata.empty(), data.getMetadata());
+    return pattern.newEmitter().appendTo(data, metadata, new StringBuilder()).toString();
+  }
+
+  @Test
+  public void testDefaultPattern() {
+    MessagePattern pattern = MessagePattern.fromOptions(Map.of());
+    logger.atInfo().log("Hello %s", "World");
+    logger.atInfo().with(TASK, 42).with(DEBUG, true).log("With metadata");
+    logger.atInfo().withCause(new RuntimeException()).log("With cause");
+
+    assertThat(format(pattern, logged.get(0))).isEqualTo("Hello World");
+    assertThat(format(pattern, logged.get(1)))
+        .isEqualTo("With metadata [CONTEXT task=42 debug=true ]");
+    // The cause is never formatted as metadata.
+    assertThat(format(pattern, logged.get(2))).isEqualTo("With cause");
+  }
+
+  @Test
+  public void testDefaultPattern_sameAsDefaultFormatter() {
+    MessagePattern pattern = MessagePattern.fromOptions(Map.of());
+    logger
+        .atInfo()
+        .with(USER, "bob \"the\" builder\n")
+        .with(TASK, 42)
+        .with(RATIO, 0.5)
+        .with(DEBUG, false)
+        .with(STATE, Thread.State.RUNNABLE)
+        .with(PATH, "foo")
+        .with(PATH, "bar")
+        .log("Hello %s", "World");
+
+    LogData data = logged.get(0);
+    MetadataProcessor metadata =
+        MetadataProcessor.forScopeAndLogSite(Metadata.empty(), data.getMetadata());
+    String expected =
+        SimpleMessageFormatter.getDefaultFormatter()
+            .append(data, metadata, new StringBuilder())
+            .toString();
+    assertThat(format(pattern, data)).isEqualTo(expected);
+    assertThat(expected)
+        .isEqualTo(
+            "Hello World [CONTEXT user=\"bob \\\"the\\\" builder\\n\" task=42 ratio=0.5"
+                + " debug=false state=\"RUNNABLE\" path=\"foo/bar\" ]");
+  }
+
+  @Test
+  public void testCustomPattern() {
+    MessagePattern pattern =
+        MessagePattern.fromOptions(
+            Map.of(
+                "pattern", "%{level} [%{location}] %{key.task/task=/: }%{message}%{metadata/ [/]}",
+                "metadata.key.task", KEY_PREFIX + "TASK",
+                "metadata.ignore.size", "1",
+                "metadata.ignore.0", KEY_PREFIX + "DEBUG"));
+    logger.atWarning().with(TASK, 42).with(USER, "bob").with(DEBUG, true).log("Message");
+    logger.atInfo().with(DEBUG, true).log("No task");
+
+    String location = getClass().getName() + "#testCustomPattern";
+    // The task key is not repeated in the metadata, and the debug key is ignored.
+    assertThat(format(pattern, logged.get(0)))
+        .isEqualTo("WARNING [" + location + "] task=42: Message [user=\"bob\"]");
+    // Optional tokens with no values emit nothing (including their prefix and suffix).
+    assertThat(format(pattern, logged.get(1))).isEqualTo("INFO [" + location + "] No task");
+  }
+
+  @Test
+  public void testEscaping() {
+    MessagePattern pattern =
+        MessagePattern.fromOptions(Map.of("pattern", "%{message}%{metadata/ \\{\\/\\}/!}"));
+    logger.atInfo().with(USER, "bob").log("Done");
+    assertThat(format(pattern, logged.get(0))).isEqualTo("Done {/}user=\"bob\"!");
+  }
+
+  @Test
+  public void testBadOptions() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MessagePattern.fromOptions(Map.of("pattern", "%{unknown}")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MessagePattern.fromOptions(Map.of("pattern", "%{message/prefix/}")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MessagePattern.fromOptions(Map.of("pattern", "%{message")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MessagePattern.fromOptions(Map.of("pattern", "%{key.missing}")));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            MessagePattern.fromOptions(
+                Map.of("metadata.ignore.size", "1", "metadata.ignore.0", KEY_PREFIX + "NONE")));
+  }
+}
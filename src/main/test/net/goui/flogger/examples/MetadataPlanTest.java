@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.MetadataKey;
+import com.google.common.flogger.MetadataKey.KeyValueHandler;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.Metadata;
+import com.google.common.flogger.backend.MetadataKeyValueHandlers;
+import com.google.common.flogger.backend.MetadataProcessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MetadataPlanTest {
+  private static final MetadataKey<String> USER = MetadataKey.single("user", String.class);
+  private static final MetadataKey<Integer> ID = MetadataKey.repeated("id", Integer.class);
+  private static final MetadataKey<String> PATH =
+      new JoiningMetadataKey<>("path", String.class, '/');
+  private static final MetadataKey<Boolean> DEBUG = MetadataKey.single("debug", Boolean.class);
+
+  private static final Set<MetadataKey<?>> IGNORED = Set.of(DEBUG, LogContext.Key.LOG_CAUSE);
+
+  private final List<LogData> logged = new ArrayList<>();
+  private final TestLogger logger = new TestLogger(TestLogger.recording(logged));
+
+  /** Collects emitted values as "label=value" strings. */
+  private static final class Collector implements KeyValueHandler {
+    private final List<String> values = new ArrayList<>();
+
+    @Override
+    public void handle(String label, Object value) {
+      values.add(label + "=" + value);
+    }
+  }
+
+  private static MetadataProcessor metadataOf(LogData data) {
+    return MetadataProcessor.forScopeAndLogSite(Metadata.empty(), data.getMetadata());
+  }
+
+  @Test
+  public void testSameOutputAsDefaultHandler() {
+    logger.atInfo().with(USER, "bob").with(ID, 1).with(DEBUG, true).with(ID, 2).log("one");
+    logger.atInfo().with(PATH, "foo").with(USER, "bob").with(PATH, "bar").log("two");
+    logger.atInfo().with(DEBUG, false).withCause(new RuntimeException()).log("ignored");
+    logger.atInfo().log("none");
+
+    MetadataPlan plan = MetadataPlan.ignoring(IGNORED);
+    Collector planned = new Collector();
+    MetadataPlan.Cursor cursor = plan.newCursor(planned);
+    Collector expected = new Collector();
+    // Render each event twice, so the second time uses the steps created by the first.
+    for (int n = 0; n < 2; n++) {
+      for (LogData data : logged) {
+        cursor.render(metadataOf(data));
+        metadataOf(data).process(MetadataKeyValueHandlers.getDefaultHandler(IGNORED), expected);
+      }
+    }
+    assertThat(planned.values).isEqualTo(expected.values);
+    assertThat(planned.values)
+        .containsExactly(
+            "user=bob", "id=1", "id=2", "path=foo/bar", "user=bob",
+            "user=bob", "id=1", "id=2", "path=foo/bar", "user=bob")
+        .inOrder();
+  }
+
+  @Test
+  public void testKeyOrderMatters() {
+    logger.atInfo().with(USER, "first").with(ID, 1).log("one");
+    logger.atInfo().with(ID, 2).with(USER, "second").log("two");
+    logger.atInfo().with(USER, "third").log("three");
+
+    Collector collector = new Collector();
+    MetadataPlan.Cursor cursor = MetadataPlan.ignoring(IGNORED).newCursor(collector);
+    for (LogData data : logged) {
+      cursor.render(metadataOf(data));
+    }
+    assertThat(collector.values)
+        .containsExactly("user=first", "id=1", "id=2", "user=second", "user=third")
+        .inOrder();
+  }
+}
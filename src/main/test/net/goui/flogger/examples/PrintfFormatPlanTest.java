@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.flogger.backend.BaseMessageFormatter;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.TemplateContext;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PrintfFormatPlanTest {
+  /** Log data with only the message template and arguments (all that message formatting uses). */
+  private static LogData printf(String format, Object... args) {
+    TemplateContext context = new TemplateContext(DefaultPrintfMessageParser.getInstance(), format);
+    return (LogData)
+        Proxy.newProxyInstance(
+            LogData.class.getClassLoader(),
+            new Class<?>[] {LogData.class},
+            (proxy, method, methodArgs) ->
+                switch (method.getName()) {
+                  case "getTemplateContext" -> context;
+                  case "getArguments" -> args;
+                  default -> throw new UnsupportedOperationException(method.getName());
+                });
+  }
+
+  private static void assertSameAsDefault(String format, Object... args) {
+    LogData data = printf(format, args);
+    StringBuilder expected = BaseMessageFormatter.appendFormattedMessage(data, new StringBuilder());
+    StringBuilder actual = PrintfFormatPlan.appendFormattedMessage(data, new StringBuilder());
+    assertThat(actual.toString()).isEqualTo(expected.toString());
+  }
+
+  @Test
+  public void testFormatting_sameAsDefault() {
+    assertSameAsDefault("Hello World");
+    assertSameAsDefault("Fibonacci [Sampled]: fib(%d) = %d", 16, 987L);
+    assertSameAsDefault("With printf formatting: %#x + %#x = %#x", 23, 19, 42);
+    assertSameAsDefault("%s%s", "foo", "bar");
+    assertSameAsDefault("100%% of %-8s|%08.3f|%,d", "things", Math.PI, 1234567);
+    assertSameAsDefault("Indexed: %2$s %1$s", "world", "hello");
+    assertSameAsDefault("Null: %s, Bad type: %d", null, "not a number");
+  }
+
+  @Test
+  public void testFormatting_argumentErrors() {
+    assertSameAsDefault("Missing: %s %s", "one");
+    assertSameAsDefault("Extra: %s", "one", "two");
+  }
+
+  @Test
+  public void testFormatting_primitivesSameAsDefault() {
+    assertSameAsDefault("%d %d %d %d", 0, -1, Long.MIN_VALUE, (short) -300);
+    assertSameAsDefault("%x %x %x %x", -1, -1L, (short) -1, (byte) -1);
+    assertSameAsDefault("%#x %X %#X", 0, 0xCAFE, Long.MAX_VALUE);
+    assertSameAsDefault("%2$#x %1$d %2$s", 42, (byte) -128);
+    assertSameAsDefault("%s %b %s %b", true, false, 123L, 123);
+    assertSameAsDefault("Bad types: %d %x", true, BigInteger.TEN.negate());
+  }
+
+  private static void appendRepeatedly(
+      PrintfFormatPlan plan, Object[] args, StringBuilder out, int callCount) {
+    for (int n = 0; n < callCount; n++) {
+      out.setLength(0);
+      plan.appendTo(args, out);
+    }
+  }
+
+  @Test
+  public void testAppendTo_preBoxedPrimitives_noPerCallAllocation() {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    PrintfFormatPlan plan = PrintfFormatPlan.forFormat("fib(%d) = %d [%#x, %s]");
+    Object[] args = {16, 987L, 0xCAFE, true};
+    StringBuilder out = new StringBuilder(100);
+    int callCount = 100_000;
+    // Warm up (lets the JIT compile the formatting path and the loop which calls it).
+    for (int n = 0; n < 10; n++) {
+      appendRepeatedly(plan, args, out, callCount);
+    }
+
+    long startBytes = threads.getCurrentThreadAllocatedBytes();
+    appendRepeatedly(plan, args, out, callCount);
+    long allocatedBytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
+
+    assertThat(out.toString()).isEqualTo("fib(16) = 987 [0xcafe, true]");
+    // This only measures appending already boxed arguments into a reused buffer (not a log
+    // statement). Allow for a small fixed overhead from the measurement itself, but nothing per
+    // call.
+    assertThat(allocatedBytes).isLessThan(1024L);
+  }
+
+  @Test
+  public void testPlansAreCached() {
+    String format = "Task: Step %d/%d";
+    PrintfFormatPlan plan = PrintfFormatPlan.forFormat(format);
+    assertThat(PrintfFormatPlan.forFormat(format)).isSameInstanceAs(plan);
+  }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.logging.Level;
+import net.goui.flogger.testing.LevelClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RuntimeLevelControlTest {
+  private static final String NAME = "net.goui.flogger.examples.levels";
+
+  @Test
+  public void testSetLevels_onlyNamedLoggersChange() {
+    Logger changed = LogManager.getLogger(NAME + ".changed");
+    Logger sibling = LogManager.getLogger(NAME + ".sibling");
+    assertThat(changed.isDebugEnabled()).isFalse();
+
+    RuntimeLevelControl.setLevels(ImmutableMap.of(NAME + ".changed", LevelClass.FINE));
+
+    assertThat(changed.isDebugEnabled()).isTrue();
+    assertThat(sibling.isDebugEnabled()).isFalse();
+    assertThat(java.util.logging.Logger.getLogger(NAME + ".changed").getLevel())
+        .isEqualTo(Level.FINE);
+
+    RuntimeLevelControl.setLevel(NAME + ".changed", LevelClass.WARNING);
+    assertThat(changed.isDebugEnabled()).isFalse();
+    assertThat(changed.isInfoEnabled()).isFalse();
+    assertThat(changed.isWarnEnabled()).isTrue();
+  }
+
+  @Test
+  public void testSetLevel_appliesToExistingChildLoggers() {
+    Logger child = LogManager.getLogger(NAME + ".parent.child");
+    Logger own = LogManager.getLogger(NAME + ".parent.own");
+    java.util.logging.Logger jdkChild = java.util.logging.Logger.getLogger(NAME + ".parent.child");
+    java.util.logging.Logger jdkOwn = java.util.logging.Logger.getLogger(NAME + ".parent.own");
+    RuntimeLevelControl.setLevel(NAME + ".parent.own", LevelClass.WARNING);
+    assertThat(child.isDebugEnabled()).isFalse();
+
+    RuntimeLevelControl.setLevel(NAME + ".parent", LevelClass.FINE);
+
+    // Both backends apply the new level to children, except those with a level of their own.
+    assertThat(child.isDebugEnabled()).isTrue();
+    assertThat(jdkChild.isLoggable(Level.FINE)).isTrue();
+    assertThat(own.isInfoEnabled()).isFalse();
+    assertThat(jdkOwn.isLoggable(Level.INFO)).isFalse();
+  }
+
+  @Test
+  public void testSetLevel_appliesToLoggersCreatedLater() {
+    RuntimeLevelControl.setLevel(NAME + ".later", LevelClass.FINEST);
+    LoggerContext context = (LoggerContext) LogManager.getContext(false);
+    // The configuration is updated, so a full update of loggers does not undo the change.
+    context.updateLoggers();
+    assertThat(LogManager.getLogger(NAME + ".later").isTraceEnabled()).isTrue();
+    assertThat(LogManager.getLogger(NAME + ".later.child").isTraceEnabled()).isTrue();
+  }
+}
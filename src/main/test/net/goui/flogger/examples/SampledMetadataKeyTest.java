@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SampledMetadataKeyTest {
+  private static final Duration PERIOD = Duration.ofSeconds(10);
+
+  private static final class FakeTicker extends Ticker {
+    private long nanos = 0;
+
+    void advance(Duration duration) {
+      nanos += duration.toNanos();
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
+  /** A key which emits the number of times it has been sampled. */
+  private static final class CountingKey extends SampledMetadataKey<Integer> {
+    private final AtomicInteger sampleCount = new AtomicInteger();
+
+    CountingKey(Executor executor, Ticker ticker) {
+      super("count", PERIOD, executor, ticker);
+    }
+
+    @Override
+    protected Integer sample() {
+      return sampleCount.incrementAndGet();
+    }
+  }
+
+  private final FakeTicker ticker = new FakeTicker();
+
+  private static List<Object> emit(SampledMetadataKey<?> key, boolean enabled) {
+    List<Object> values = new ArrayList<>();
+    key.safeEmit(enabled, (label, value) -> values.add(label + "=" + value));
+    return values;
+  }
+
+  @Test
+  public void testSampledAtMostOncePerPeriod() {
+    CountingKey key = new CountingKey(directExecutor(), ticker);
+
+    assertThat(emit(key, true)).containsExactly("count=1");
+    ticker.advance(PERIOD.minusNanos(1));
+    assertThat(emit(key, true)).containsExactly("count=1");
+    ticker.advance(Duration.ofNanos(1));
+    assertThat(emit(key, true)).containsExactly("count=2");
+    assertThat(emit(key, true)).containsExactly("count=2");
+    assertThat(key.sampleCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testRefreshDoesNotBlockOtherEmitters() {
+    List<Runnable> pendingRefreshes = new ArrayList<>();
+    CountingKey key = new CountingKey(pendingRefreshes::add, ticker);
+
+    assertThat(emit(key, true)).containsExactly("count=1");
+    ticker.advance(PERIOD);
+    // The refresh is claimed once, and all emitters see the previous value until it completes.
+    assertThat(emit(key, true)).containsExactly("count=1");
+    assertThat(emit(key, true)).containsExactly("count=1");
+    assertThat(pendingRefreshes).hasSize(1);
+
+    pendingRefreshes.remove(0).run();
+    assertThat(emit(key, true)).containsExactly("count=2");
+    assertThat(pendingRefreshes).isEmpty();
+  }
+
+  @Test
+  public void testRejectedRefreshEmitsPreviousValue() {
+    List<Runnable> pendingRefreshes = new ArrayList<>();
+    AtomicInteger rejections = new AtomicInteger(1);
+    Executor executor =
+        task -> {
+          if (rejections.getAndDecrement() > 0) {
+            throw new RejectedExecutionException();
+          }
+          pendingRefreshes.add(task);
+        };
+    CountingKey key = new CountingKey(executor, ticker);
+
+    assertThat(emit(key, true)).containsExactly("count=1");
+    ticker.advance(PERIOD);
+    assertThat(emit(key, true)).containsExactly("count=1");
+    // The rejected refresh is not left claimed, so the next emitter tries again.
+    assertThat(emit(key, true)).containsExactly("count=1");
+    assertThat(pendingRefreshes).hasSize(1);
+  }
+
+  @Test
+  public void testNothingEmittedWhenFalseOrNull() {
+    CountingKey countingKey = new CountingKey(directExecutor(), ticker);
+    assertThat(emit(countingKey, false)).isEmpty();
+    assertThat(countingKey.sampleCount.get()).isEqualTo(0);
+
+    SampledMetadataKey<String> nullKey =
+        new SampledMetadataKey<>("null", PERIOD) {
+          @Override
+          protected String sample() {
+            return null;
+          }
+        };
+    assertThat(emit(nullKey, true)).isEmpty();
+  }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Range;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StripedRateLimiterTest {
+  private static List<Integer> allowedCalls(StripedRateLimiter limiter, int callCount) {
+    List<Integer> allowed = new ArrayList<>();
+    for (int n = 0; n < callCount; n++) {
+      if (limiter.check() >= 0) {
+        allowed.add(n);
+      }
+    }
+    return allowed;
+  }
+
+  @Test
+  public void testEveryN_singleCellIsExact() {
+    StripedRateLimiter limiter = new StripedRateLimiter.EveryN(10, 1);
+    assertThat(limiter.check()).isEqualTo(0);
+    for (int n = 1; n < 10; n++) {
+      assertThat(limiter.check()).isEqualTo(-1);
+    }
+    assertThat(limiter.check()).isEqualTo(9);
+    assertThat(allowedCalls(limiter, 30)).containsExactly(9, 19, 29).inOrder();
+  }
+
+  @Test
+  public void testEveryN_manyThreadsIsApproximate() throws InterruptedException {
+    int n = 1000;
+    int threadCount = 16;
+    int callsPerThread = 100_000;
+    StripedRateLimiter limiter = new StripedRateLimiter.EveryN(n, 8);
+    LongAdder allowedCount = new LongAdder();
+    LongAdder reportedSkipCount = new LongAdder();
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      executor.execute(
+          () -> {
+            for (int i = 0; i < callsPerThread; i++) {
+              int skipped = limiter.check();
+              if (skipped >= 0) {
+                allowedCount.increment();
+                reportedSkipCount.add(skipped);
+              }
+            }
+          });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(30, SECONDS)).isTrue();
+
+    long totalCalls = (long) threadCount * callsPerThread;
+    // Uncounted calls are bounded (less than n), so at most one allowed call is missing.
+    assertThat(allowedCount.sum()).isIn(Range.closed(totalCalls / n, totalCalls / n + 1));
+    // Every call is either allowed or reported as skipped, apart from calls not yet counted and
+    // calls since the last allowed call.
+    long unreportedCount = totalCalls - allowedCount.sum() - reportedSkipCount.sum();
+    assertThat(unreportedCount).isIn(Range.closedOpen(0L, 2L * n));
+  }
+
+  @Test
+  public void testAtMostEvery() {
+    AtomicLong nanos = new AtomicLong();
+    Ticker ticker =
+        new Ticker() {
+          @Override
+          public long read() {
+            return nanos.get();
+          }
+        };
+    StripedRateLimiter limiter = new StripedRateLimiter.AtMostEvery(SECONDS.toNanos(2), ticker);
+
+    assertThat(limiter.check()).isEqualTo(0);
+    for (int n = 0; n < 5; n++) {
+      nanos.addAndGet(SECONDS.toNanos(1) / 4);
+      assertThat(limiter.check()).isEqualTo(-1);
+    }
+    nanos.addAndGet(SECONDS.toNanos(1) / 2);
+    assertThat(limiter.check()).isEqualTo(-1);
+    // Exactly 2 seconds after the first call.
+    nanos.addAndGet(SECONDS.toNanos(1) / 4);
+    assertThat(limiter.check()).isEqualTo(6);
+  }
+}
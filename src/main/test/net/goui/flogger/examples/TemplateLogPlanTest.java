@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import static com.google.common.truth.Truth.assertThat;
+import static net.goui.flogger.examples.TemplateLogPlan.at;
+
+import com.google.common.flogger.LogSite;
+import com.google.common.flogger.LogSites;
+import com.google.common.flogger.backend.LogData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TemplateLogPlanTest {
+  private static final StringTemplate.Processor<StringTemplate, RuntimeException> TEMPLATE =
+      t -> t;
+
+  private static String format(StringTemplate template) {
+    String format = TemplateLogPlan.forFragments(template.fragments()).format();
+    return String.format(format, template.values().toArray());
+  }
+
+  @Test
+  public void testFormat() {
+    int a = 23, b = 19;
+    assertThat(format(TEMPLATE."Using String Templates: \{a} + \{b} = \{a + b}"))
+        .isEqualTo("Using String Templates: 23 + 19 = 42");
+    assertThat(format(TEMPLATE."With printf formatting: %#x\{a} + %#x\{b} = %#x\{a + b}"))
+        .isEqualTo("With printf formatting: 0x17 + 0x13 = 0x2a");
+    assertThat(format(TEMPLATE."""
+        With multi-line formatting:
+          %#x\{a}
+          + %#x\{b}
+          = %#x\{a + b}"""))
+        .isEqualTo("With multi-line formatting:\n  0x17\n  + 0x13\n  = 0x2a");
+    assertThat(format(TEMPLATE."Percent: 100%, padded: [%-5s\{a}], float: %.2f\{Math.PI}%"))
+        .isEqualTo("Percent: 100%, padded: [23   ], float: 3.14%");
+    assertThat(format(TEMPLATE."\{a}\{b}")).isEqualTo("2319");
+  }
+
+  @Test
+  public void testFormat_directivesWithoutArguments() {
+    int x = 42;
+    // Neither "%n" nor an escaped "%%d" can format a value, so they are literal text.
+    assertThat(format(TEMPLATE."line%n\{x}")).isEqualTo("line%n42");
+    assertThat(format(TEMPLATE."100%%d\{x}")).isEqualTo("100%%d42");
+  }
+
+  @Test
+  public void testPlan_cachedPerTemplate() {
+    TemplateLogPlan[] plans = new TemplateLogPlan[3];
+    for (int n = 0; n < plans.length; n++) {
+      plans[n] = TemplateLogPlan.forFragments(TEMPLATE."Value: %d\{n}".fragments());
+    }
+    assertThat(plans[1]).isSameInstanceAs(plans[0]);
+    assertThat(plans[2]).isSameInstanceAs(plans[0]);
+    assertThat(plans[0].format()).isEqualTo("Value: %d");
+
+    // Equal fragments from a different template expression have their own plan.
+    List<String> other = TEMPLATE."Value: %d\{0}".fragments();
+    assertThat(other).containsExactly("Value: %d", "").inOrder();
+    assertThat(TemplateLogPlan.forFragments(other)).isNotSameInstanceAs(plans[0]);
+  }
+
+  @Test
+  public void testLogging() {
+    List<LogData> logged = new ArrayList<>();
+    TestLogger logger = new TestLogger(TestLogger.recording(Level.INFO, logged::add));
+
+    int a = 23, b = 19;
+    at(logger.at(Level.FINE))."Disabled: \{a}".log();
+    LogSite before = LogSites.logSite();
+    at(logger.at(Level.INFO))."With printf formatting: %#x\{a} + %#x\{b} = %#x\{a + b}".log();
+
+    assertThat(logged).hasSize(1);
+    LogData data = logged.get(0);
+    // The log site is the log statement (not the template processor).
+    assertThat(data.getLogSite().getClassName()).isEqualTo(before.getClassName());
+    assertThat(data.getLogSite().getMethodName()).isEqualTo("testLogging");
+    assertThat(data.getLogSite().getLineNumber()).isEqualTo(before.getLineNumber() + 1);
+    assertThat(data.getTemplateContext().getMessage())
+        .isEqualTo("With printf formatting: %#x + %#x = %#x");
+    assertThat(data.getArguments()).asList().containsExactly(23, 19, 42).inOrder();
+    assertThat(PrintfFormatPlan.appendFormattedMessage(data, new StringBuilder()).toString())
+        .isEqualTo("With printf formatting: 0x17 + 0x13 = 0x2a");
+  }
+}
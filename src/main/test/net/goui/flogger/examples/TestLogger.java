@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2024, David Beaumont (https://github.com/hagbard).
+ *
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v. 2.0 available at https://www.eclipse.org/legal/epl-2.0, or the
+ * Apache License, Version 2.0 available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+ ******************************************************************************/
+
+package net.goui.flogger.examples;
+
+import com.google.common.flogger.AbstractLogger;
+import com.google.common.flogger.LogContext;
+import com.google.common.flogger.LoggingApi;
+import com.google.common.flogger.backend.LogData;
+import com.google.common.flogger.backend.LoggerBackend;
+import com.google.common.flogger.parser.DefaultPrintfMessageParser;
+import com.google.common.flogger.parser.MessageParser;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/** A minimal logger for tests, since Flogger's own loggers cannot be given a specific backend. */
+final class TestLogger extends AbstractLogger<TestLogger.Api> {
+  interface Api extends LoggingApi<Api> {}
+
+  private static final class NoOp extends LoggingApi.NoOp<Api> implements Api {}
+
+  private static final Api NO_OP = new NoOp();
+
+  /** Returns a backend, enabled for all levels, which adds log events to the given list. */
+  static LoggerBackend recording(List<LogData> logged) {
+    return recording(Level.ALL, logged::add);
+  }
+
+  /** Returns a backend, enabled at or above the given level, which passes log events to a sink. */
+  static LoggerBackend recording(Level minLevel, Consumer<? super LogData> sink) {
+    return new LoggerBackend() {
+      @Override
+      public String getLoggerName() {
+        return "test";
+      }
+
+      @Override
+      public boolean isLoggable(Level level) {
+        return level.intValue() >= minLevel.intValue();
+      }
+
+      @Override
+      public void log(LogData data) {
+        sink.accept(data);
+      }
+
+      @Override
+      public void handleError(RuntimeException error, LogData badData) {
+        throw error;
+      }
+    };
+  }
+
+  TestLogger(LoggerBackend backend) {
+    super(backend);
+  }
+
+  @Override
+  public Api at(Level level) {
+    return isLoggable(level) ? new Context(level, false) : NO_OP;
+  }
+
+  Api forceAt(Level level) {
+    return new Context(level, true);
+  }
+
+  private final class Context extends LogContext<TestLogger, Api> implements Api {
+    Context(Level level, boolean isForced) {
+      super(level, isForced);
+    }
+
+    @Override
+    protected Api api() {
+      return this;
+    }
+
+    @Override
+    protected TestLogger getLogger() {
+      return TestLogger.this;
+    }
+
+    @Override
+    protected Api noOp() {
+      return NO_OP;
+    }
+
+    @Override
+    protected MessageParser getMessageParser() {
+      return DefaultPrintfMessageParser.getInstance();
+    }
+  }
+}